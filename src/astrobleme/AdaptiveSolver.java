@@ -0,0 +1,213 @@
+package astrobleme;
+
+import java.math.BigInteger;
+
+/**
+ * Solves linear systems in mixed precision. The system is first factored and
+ * solved with doubles; the residual b - Ax is then computed exactly and used to
+ * iteratively refine the solution. In exact mode, the refined values are turned
+ * back into small fractions (rational reconstruction through continued fractions)
+ * and accepted only when they satisfy the system exactly.
+ * <p>
+ * For well-conditioned systems this gives exact results at close to floating point
+ * cost. Symmetric systems are factored with {@link CholeskyDecompose} when
+ * possible. When refinement does not converge (or the matrix is singular to
+ * working precision) the exact {@link LDLDecompose} or {@link LUPDecompose} is
+ * used instead, so the answers are never worse than those of the exact solvers.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.05
+ */
+public class AdaptiveSolver {
+    private static final int MAX_ITERATIONS = 30;
+    // Reconstruction is only attempted once the corrections become this small
+    private static final double RECONSTRUCTION_THRESHOLD = 1e-6;
+
+    /**
+     * Solves Ax = b exactly.
+     *
+     * @param a The square matrix of coefficients.
+     * @param b The constants vector.
+     * @return The exact solution vector.
+     * @throws IllegalArgumentException If a is not square or b does not match.
+     * @throws ArithmeticException      If the Matrix is singular.
+     */
+    public static Rational[] solve(Matrix a, Rational[] b) {
+        return solve(a, b, null);
+    }
+
+    /**
+     * Solves Ax = b to within the given tolerance. The magnitude of the last
+     * correction applied by the iterative refinement is used as the estimate of
+     * the error, just as {@link Matrix#approximatelyEquals(Matrix, Rational)}
+     * compares element by element.
+     *
+     * @param a         The square matrix of coefficients.
+     * @param b         The constants vector.
+     * @param tolerance The permitted error per element, or {@code null} for an
+     *                  exact solution.
+     * @return The solution vector.
+     * @throws IllegalArgumentException If a is not square or b does not match.
+     * @throws ArithmeticException      If the Matrix is singular.
+     */
+    public static Rational[] solve(Matrix a, Rational[] b, Rational tolerance) {
+        if (!a.isSquare()) {
+            throw new IllegalArgumentException("Only square systems can be solved.");
+        }
+        final int n = a.getRows();
+        if (b.length != n) {
+            throw new IllegalArgumentException("Incompatible constants vector.");
+        }
+        DoubleSolver lup;
+        try {
+            lup = factor(a);
+        } catch (ArithmeticException e) {
+            return exact(a, b);
+        }
+        Rational[][] array = a.array();
+        Rational[] x = new Rational[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = Rational.ZERO;
+        }
+        Rational[] r = b.clone();
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            if (isZero(r)) {
+                return x;
+            }
+            double[] d = lup.solve(toDoubleArray(r));
+            double correctionNorm = 0;
+            double solutionNorm = 0;
+            boolean withinTolerance = tolerance != null;
+            for (int i = 0; i < n; i++) {
+                if (Double.isNaN(d[i]) || Double.isInfinite(d[i])) {
+                    return exact(a, b);
+                }
+                Rational correction = new Rational(d[i]);
+                if (withinTolerance && correction.abs().compareTo(tolerance) > 0) {
+                    withinTolerance = false;
+                }
+                x[i] = x[i].add(correction);
+                correctionNorm = Math.max(correctionNorm, Math.abs(d[i]));
+                solutionNorm = Math.max(solutionNorm, Math.abs(x[i].doubleValue()));
+            }
+            if (withinTolerance) {
+                return x;
+            }
+            r = residual(array, x, b);
+            if (tolerance == null && !isZero(r)
+                    && correctionNorm <= RECONSTRUCTION_THRESHOLD * solutionNorm) {
+                double error = Math.max(correctionNorm, Math.ulp(solutionNorm));
+                Rational[] y = reconstruct(x, new Rational(error));
+                if (isZero(residual(array, y, b))) {
+                    return y;
+                }
+            }
+            if (correctionNorm == 0) {
+                // Stagnated; the doubles cannot resolve the residual any further
+                break;
+            }
+        }
+        return exact(a, b);
+    }
+
+    /**
+     * Symmetric matrices are tried with Cholesky first, which takes half the work.
+     */
+    private static DoubleSolver factor(Matrix a) {
+        if (a.isSymmetric()) {
+            try {
+                return new CholeskyDecompose(a);
+            } catch (ArithmeticException ignored) {
+                // Not positive definite; LU can handle it
+            }
+        }
+        return new DoubleLUPDecompose(a.toDoubleArray());
+    }
+
+    private static Rational[] exact(Matrix a, Rational[] b) {
+        if (a.isSymmetric()) {
+            try {
+                return new LDLDecompose(a).solve(b);
+            } catch (ArithmeticException ignored) {
+                // Needs pivoting
+            }
+        }
+        return new LUPDecompose(a).solve(b);
+    }
+
+    private static boolean isZero(Rational[] v) {
+        for (Rational element : v) {
+            if (!element.isZero()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double[] toDoubleArray(Rational[] v) {
+        double[] d = new double[v.length];
+        for (int i = 0; i < v.length; i++) {
+            d[i] = v[i].doubleValue();
+        }
+        return d;
+    }
+
+    /**
+     * @return The exact value of b - Ax.
+     */
+    private static Rational[] residual(Rational[][] a, Rational[] x, Rational[] b) {
+        Rational[] r = new Rational[b.length];
+        RationalAccumulator sum = new RationalAccumulator();
+        for (int i = 0; i < b.length; i++) {
+            sum.reset().add(b[i]);
+            for (int j = 0; j < x.length; j++) {
+                sum.subtractProduct(a[i][j], x[j]);
+            }
+            r[i] = sum.toRational();
+        }
+        return r;
+    }
+
+    private static Rational[] reconstruct(Rational[] x, Rational error) {
+        Rational[] y = new Rational[x.length];
+        for (int i = 0; i < x.length; i++) {
+            y[i] = reconstruct(x[i], error);
+        }
+        return y;
+    }
+
+    /**
+     * Finds the first continued fraction convergent of x that is within the given
+     * error. This is the fraction with the smallest denominator in that range
+     * among the convergents, and usually the one we are after.
+     *
+     * @param x     The value to approximate.
+     * @param error The permitted (non-negative) error.
+     * @return The reconstructed fraction.
+     */
+    static Rational reconstruct(Rational x, Rational error) {
+        if (x.signum() < 0) {
+            return reconstruct(x.negate(), error).negate();
+        }
+        BigInteger p = x.getNumerator();
+        BigInteger q = x.getDenominator();
+        BigInteger h0 = BigInteger.ZERO, h1 = BigInteger.ONE;
+        BigInteger k0 = BigInteger.ONE, k1 = BigInteger.ZERO;
+        while (true) {
+            BigInteger[] qr = p.divideAndRemainder(q);
+            BigInteger h2 = qr[0].multiply(h1).add(h0);
+            BigInteger k2 = qr[0].multiply(k1).add(k0);
+            Rational convergent = new Rational(h2, k2);
+            if (qr[1].signum() == 0
+                    || x.subtract(convergent).abs().compareTo(error) <= 0) {
+                return convergent;
+            }
+            p = q;
+            q = qr[1];
+            h0 = h1;
+            h1 = h2;
+            k0 = k1;
+            k1 = k2;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package astrobleme;
+
+import org.testng.annotations.Test;
+
+import static astrobleme.TestMatrices.RANDOM;
+import static astrobleme.TestMatrices.randomDominant;
+import static astrobleme.TestMatrices.randomVector;
+import static org.testng.Assert.*;
+
+/**
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class AdaptiveSolverTest {
+
+    private static final int COUNT = 10;
+    private static final int LIMIT = 20;
+
+    @Test
+    public void testExactSolve() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT) + 1;
+            Matrix a = randomDominant(size);
+            Rational[] x = randomVector(size);
+            Rational[] b = multiply(a, x);
+            assertEquals(AdaptiveSolver.solve(a, b), x);
+        }
+    }
+
+    @Test
+    public void testToleranceSolve() throws Exception {
+        Rational tolerance = new Rational(1, 1000000);
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT) + 1;
+            Matrix a = randomDominant(size);
+            Rational[] x = randomVector(size);
+            Rational[] y = AdaptiveSolver.solve(a, multiply(a, x), tolerance);
+            for (int i = 0; i < size; i++) {
+                assertTrue(x[i].subtract(y[i]).abs().compareTo(tolerance) <= 0);
+            }
+        }
+    }
+
+    @Test
+    public void testReconstruct() throws Exception {
+        Rational third = new Rational(1, 3);
+        Rational close = third.add(new Rational(1, 1000000000));
+        assertEquals(AdaptiveSolver.reconstruct(close, new Rational(1, 100000)), third);
+        assertEquals(AdaptiveSolver.reconstruct(close.negate(), new Rational(1, 100000)),
+                third.negate());
+    }
+
+    private static Rational[] multiply(Matrix a, Rational[] x) {
+        Rational[] b = new Rational[a.getRows()];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = Rational.ZERO;
+            for (int j = 0; j < x.length; j++) {
+                b[i] = b[i].add(a.get(i, j).multiply(x[j]));
+            }
+        }
+        return b;
+    }
+}
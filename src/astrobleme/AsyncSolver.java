@@ -0,0 +1,135 @@
+package astrobleme;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Runs the expensive exact operations (products and solutions of linear systems)
+ * on an Executor and hands back a {@link CompletableFuture} for the result.
+ * <p>
+ * Cancellation is cooperative: the computation checks its future after every row
+ * or pivot step and stops as soon as the future has been completed by someone
+ * else, which is what {@link CompletableFuture#cancel(boolean)} does. An optional
+ * deadline is checked at the same points; once it passes, the future completes
+ * exceptionally with a {@link TimeoutException}. Either way, no more CPU is spent
+ * on the abandoned work.
+ * <p>
+ * Any Executor may be used, including a virtual thread per task executor.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class AsyncSolver {
+    private final Executor executor;
+
+    /**
+     * Creates an AsyncSolver that runs on the common {@link ForkJoinPool}.
+     */
+    public AsyncSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor The Executor to run the computations on.
+     */
+    public AsyncSolver(final Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null.");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * @param a The multiplicand.
+     * @param b The multiplier.
+     * @return A future for the product of the two matrices.
+     */
+    public CompletableFuture<Matrix> multiply(Matrix a, Matrix b) {
+        return submit(checkpoint -> a.multiply(b, checkpoint), Long.MAX_VALUE);
+    }
+
+    /**
+     * @param a       The multiplicand.
+     * @param b       The multiplier.
+     * @param timeout The time allowed for the computation, starting now.
+     * @return A future for the product of the two matrices.
+     */
+    public CompletableFuture<Matrix> multiply(Matrix a, Matrix b, Duration timeout) {
+        return submit(checkpoint -> a.multiply(b, checkpoint), deadline(timeout));
+    }
+
+    /**
+     * @param a The square matrix of coefficients.
+     * @param b The constants vector.
+     * @return A future for the solution x of Ax = b.
+     */
+    public CompletableFuture<Rational[]> solve(Matrix a, Rational[] b) {
+        return submit(checkpoint -> solve(a, b, checkpoint), Long.MAX_VALUE);
+    }
+
+    /**
+     * @param a       The square matrix of coefficients.
+     * @param b       The constants vector.
+     * @param timeout The time allowed for the computation, starting now.
+     * @return A future for the solution x of Ax = b.
+     */
+    public CompletableFuture<Rational[]> solve(Matrix a, Rational[] b, Duration timeout) {
+        return submit(checkpoint -> solve(a, b, checkpoint), deadline(timeout));
+    }
+
+    private static Rational[] solve(Matrix a, Rational[] b, Checkpoint checkpoint) {
+        return new LUPDecompose(a, checkpoint).solve(b, checkpoint);
+    }
+
+    private static long deadline(Duration timeout) {
+        long nanos;
+        try {
+            nanos = timeout.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+        long now = System.nanoTime();
+        // Guard against overflow for very long timeouts
+        return nanos >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + nanos;
+    }
+
+    /**
+     * Runs the task on the Executor, passing it the checkpoint of the returned
+     * future.
+     *
+     * @param deadline The value of {@link System#nanoTime()} after which the task
+     *                 times out, or {@link Long#MAX_VALUE} for none.
+     */
+    <T> CompletableFuture<T> submit(Function<Checkpoint, T> task, long deadline) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Checkpoint checkpoint = () -> {
+            if (future.isDone()) {
+                throw new CancellationException();
+            }
+            if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+                future.completeExceptionally(new TimeoutException("Deadline exceeded."));
+                throw new CancellationException();
+            }
+        };
+        try {
+            executor.execute(() -> {
+                try {
+                    checkpoint.check();
+                    future.complete(task.apply(checkpoint));
+                } catch (Throwable t) {
+                    // Has no effect if the future has already been completed
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
@@ -0,0 +1,141 @@
+package astrobleme;
+
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static astrobleme.TestMatrices.RANDOM;
+import static astrobleme.TestMatrices.randomDominant;
+import static astrobleme.TestMatrices.randomMatrix;
+import static astrobleme.TestMatrices.randomVector;
+import static org.testng.Assert.*;
+
+/**
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class AsyncSolverTest {
+
+    private static final int COUNT = 10;
+    private static final int LIMIT = 20;
+
+    @Test
+    public void testSolve() throws Exception {
+        AsyncSolver solver = new AsyncSolver();
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT) + 1;
+            Matrix a = randomDominant(size);
+            Rational[] x = randomVector(size);
+            Rational[] b = column(a.multiply(new Matrix(new Rational[][]{x}).transpose()));
+
+            assertEquals(solver.solve(a, b).get(), x);
+            assertEquals(new LUPDecompose(a).solve(b), x);
+        }
+    }
+
+    @Test
+    public void testMultiply() throws Exception {
+        AsyncSolver solver = new AsyncSolver();
+        Matrix a = randomDominant(LIMIT);
+        Matrix b = randomDominant(LIMIT);
+        assertEquals(solver.multiply(a, b).get(), a.multiply(b));
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        AsyncSolver solver = new AsyncSolver();
+        Matrix a = randomDominant(LIMIT);
+        CompletableFuture<Rational[]> future = solver.solve(a, randomVector(LIMIT), Duration.ZERO);
+        try {
+            future.get();
+            fail("The deadline should have been exceeded.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        // Never runs the task, so the cancellation must be observed first
+        AsyncSolver solver = new AsyncSolver(command -> {
+        });
+        CompletableFuture<Matrix> future = solver.multiply(Matrix.identity(2), Matrix.identity(2));
+        assertTrue(future.cancel(true));
+        try {
+            future.get();
+            fail("The future should have been cancelled.");
+        } catch (CancellationException ignored) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCancelRunning() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+        AtomicInteger checks = new AtomicInteger();
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        AsyncSolver solver = new AsyncSolver(command -> new Thread(command).start());
+        Matrix a = randomMatrix(LIMIT);
+        // The first check of the product waits until the future has been cancelled,
+        // so the product is known to be running when that happens, and every later
+        // one defers to the checkpoint of the future
+        CompletableFuture<Matrix> future = solver.submit(checkpoint -> {
+            try {
+                return a.multiply(a, () -> {
+                    if (checks.getAndIncrement() == 0) {
+                        started.countDown();
+                        awaitUninterruptibly(cancelled);
+                        return;
+                    }
+                    checkpoint.check();
+                });
+            } catch (RuntimeException e) {
+                thrown.set(e);
+                throw e;
+            } finally {
+                stopped.countDown();
+            }
+        }, Long.MAX_VALUE);
+        started.await();
+        assertTrue(future.cancel(true));
+        cancelled.countDown();
+        stopped.await();
+        // The very next check gave up
+        assertEquals(checks.get(), 2);
+        assertTrue(thrown.get() instanceof CancellationException);
+        assertTrue(future.isCancelled());
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            } catch (InterruptedException ignored) {
+                // Keep waiting; nothing interrupts the worker in these tests
+            }
+        }
+    }
+
+    @Test(expectedExceptions = ArithmeticException.class)
+    public void testSingular() throws Exception {
+        new LUPDecompose(new Matrix(new double[][]{{1, 2}, {2, 4}}));
+    }
+
+    private static Rational[] column(Matrix m) {
+        Rational[] column = new Rational[m.getRows()];
+        for (int i = 0; i < column.length; i++) {
+            column[i] = m.get(i, 0);
+        }
+        return column;
+    }
+}
@@ -0,0 +1,139 @@
+package astrobleme;
+
+/**
+ * The operations that make up the task graphs of tiled algorithms. Each one takes
+ * a few blocks and produces a new block; the operands are never modified. Being
+ * plain constants, they are easily sent along with their operands to workers
+ * running elsewhere.
+ * <p>
+ * The LU operations work with the combined form of the factors: L (with its unit
+ * diagonal implied) below the diagonal and U on and above it.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.01.28
+ */
+public enum BlockOperation {
+    /**
+     * (A, B) &rarr; A + B
+     */
+    ADD {
+        @Override
+        Rational[][] apply(Rational[][][] m) {
+            return MatrixOps.add(m[0], m[1]);
+        }
+    },
+    /**
+     * (A, B) &rarr; AB
+     */
+    MULTIPLY {
+        @Override
+        Rational[][] apply(Rational[][][] m) {
+            return MatrixOps.multiply(m[0], m[1]);
+        }
+    },
+    /**
+     * (C, A, B) &rarr; C + AB
+     */
+    MULTIPLY_ADD {
+        @Override
+        Rational[][] apply(Rational[][][] m) {
+            return MatrixOps.add(m[0], MatrixOps.multiply(m[1], m[2]));
+        }
+    },
+    /**
+     * (C, A, B) &rarr; C - AB
+     */
+    MULTIPLY_SUBTRACT {
+        @Override
+        Rational[][] apply(Rational[][][] m) {
+            return MatrixOps.subtract(m[0], MatrixOps.multiply(m[1], m[2]));
+        }
+    },
+    /**
+     * (A) &rarr; the combined LU factors of A, without pivoting.
+     */
+    FACTOR {
+        @Override
+        Rational[][] apply(Rational[][][] m) {
+            final int n = m[0].length;
+            Rational[][] a = new Rational[n][];
+            for (int i = 0; i < n; i++) {
+                a[i] = m[0][i].clone();
+            }
+            for (int k = 0; k < n; k++) {
+                if (a[k][k].isZero()) {
+                    throw new ArithmeticException("Zero pivot; tiled LU does not pivot.");
+                }
+                for (int i = k + 1; i < n; i++) {
+                    Rational factor = a[i][k].divide(a[k][k]);
+                    a[i][k] = factor;
+                    for (int j = k + 1; j < n; j++) {
+                        a[i][j] = a[i][j].subtract(factor.multiply(a[k][j]));
+                    }
+                }
+            }
+            return a;
+        }
+    },
+    /**
+     * (LU, B) &rarr; L<sup>-1</sup>B
+     */
+    SOLVE_LOWER {
+        @Override
+        Rational[][] apply(Rational[][][] m) {
+            Rational[][] lu = m[0];
+            Rational[][] b = m[1];
+            Rational[][] x = new Rational[b.length][];
+            for (int i = 0; i < b.length; i++) {
+                x[i] = b[i].clone();
+                for (int k = 0; k < i; k++) {
+                    if (lu[i][k].isZero()) {
+                        continue;
+                    }
+                    for (int j = 0; j < x[i].length; j++) {
+                        x[i][j] = x[i][j].subtract(lu[i][k].multiply(x[k][j]));
+                    }
+                }
+            }
+            return x;
+        }
+    },
+    /**
+     * (LU, B) &rarr; BU<sup>-1</sup>
+     */
+    SOLVE_UPPER {
+        @Override
+        Rational[][] apply(Rational[][][] m) {
+            Rational[][] lu = m[0];
+            Rational[][] b = m[1];
+            Rational[][] x = new Rational[b.length][];
+            for (int r = 0; r < b.length; r++) {
+                x[r] = b[r].clone();
+                for (int j = 0; j < lu.length; j++) {
+                    Rational sum = x[r][j];
+                    for (int k = 0; k < j; k++) {
+                        sum = sum.subtract(x[r][k].multiply(lu[k][j]));
+                    }
+                    x[r][j] = sum.divide(lu[j][j]);
+                }
+            }
+            return x;
+        }
+    };
+
+    abstract Rational[][] apply(Rational[][][] operands);
+
+    /**
+     * Performs the operation in the current thread.
+     *
+     * @param operands The operands, in the order the operation expects them.
+     * @return The resulting block.
+     */
+    public Matrix apply(Matrix... operands) {
+        Rational[][][] arrays = new Rational[operands.length][][];
+        for (int i = 0; i < operands.length; i++) {
+            arrays[i] = operands[i].array();
+        }
+        return new Matrix(apply(arrays), false);
+    }
+}
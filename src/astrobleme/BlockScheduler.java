@@ -0,0 +1,170 @@
+package astrobleme;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs tiled algorithms as directed acyclic graphs of block tasks. Every block of
+ * the result is represented by a future, and each task is started on the Executor
+ * as soon as the blocks it depends on are ready. This way, independent tasks are
+ * balanced dynamically over all the available threads instead of proceeding in
+ * lock-step. The tasks themselves are carried out by a pluggable
+ * {@link BlockWorker}.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.01.28
+ */
+public class BlockScheduler {
+    private final Executor executor;
+    private final BlockWorker worker;
+
+    /**
+     * Creates a scheduler that runs the tasks locally on the common
+     * {@link ForkJoinPool}.
+     */
+    public BlockScheduler() {
+        this(ForkJoinPool.commonPool(), BlockWorker.LOCAL);
+    }
+
+    /**
+     * @param executor The Executor that the tasks are dispatched on.
+     * @param worker   The worker that carries out each task.
+     */
+    public BlockScheduler(final Executor executor, final BlockWorker worker) {
+        if (executor == null || worker == null) {
+            throw new IllegalArgumentException("Executor and worker must not be null.");
+        }
+        this.executor = executor;
+        this.worker = worker;
+    }
+
+    /**
+     * @param a The first term.
+     * @param b The second term, partitioned exactly like the first.
+     * @return A future for the sum of the two matrices.
+     * @throws IllegalArgumentException If the matrices are not compatible.
+     */
+    public CompletableFuture<TiledMatrix> add(TiledMatrix a, TiledMatrix b) {
+        if (a.getRows() != b.getRows() || a.getCols() != b.getCols()
+                || a.getBlockSize() != b.getBlockSize()) {
+            throw new IllegalArgumentException("Incompatible matrices.");
+        }
+        CompletableFuture<Matrix>[][] c = futures(a.getBlockRows(), a.getBlockCols());
+        for (int i = 0; i < c.length; i++) {
+            for (int j = 0; j < c[0].length; j++) {
+                c[i][j] = task(BlockOperation.ADD,
+                        ready(a.getBlock(i, j)), ready(b.getBlock(i, j)));
+            }
+        }
+        return collect(c, a.getBlockSize(), a.getRows(), a.getCols());
+    }
+
+    /**
+     * @param a The multiplicand.
+     * @param b The multiplier, with the same block size.
+     * @return A future for the product of the two matrices.
+     * @throws IllegalArgumentException If the matrices are not compatible.
+     */
+    public CompletableFuture<TiledMatrix> multiply(TiledMatrix a, TiledMatrix b) {
+        if (a.getCols() != b.getRows() || a.getBlockSize() != b.getBlockSize()) {
+            throw new IllegalArgumentException("Incompatible matrices.");
+        }
+        CompletableFuture<Matrix>[][] c = futures(a.getBlockRows(), b.getBlockCols());
+        for (int i = 0; i < c.length; i++) {
+            for (int j = 0; j < c[0].length; j++) {
+                c[i][j] = task(BlockOperation.MULTIPLY,
+                        ready(a.getBlock(i, 0)), ready(b.getBlock(0, j)));
+                for (int k = 1; k < a.getBlockCols(); k++) {
+                    c[i][j] = task(BlockOperation.MULTIPLY_ADD,
+                            c[i][j], ready(a.getBlock(i, k)), ready(b.getBlock(k, j)));
+                }
+            }
+        }
+        return collect(c, a.getBlockSize(), a.getRows(), b.getCols());
+    }
+
+    /**
+     * Computes the LU factors of a square matrix with the right-looking tiled
+     * algorithm. The result holds L (with its unit diagonal implied) below the
+     * diagonal and U on and above it.
+     * <p>
+     * There is no pivoting, so this is meant for matrices that do not need it,
+     * like diagonally dominant ones. {@link LUPDecompose} handles the rest.
+     *
+     * @param a The square matrix to factor.
+     * @return A future for the combined factors. It completes exceptionally
+     * with an {@link ArithmeticException} if a zero pivot is encountered.
+     * @throws IllegalArgumentException If the matrix is not square.
+     */
+    public CompletableFuture<TiledMatrix> lu(TiledMatrix a) {
+        if (a.getRows() != a.getCols()) {
+            throw new IllegalArgumentException("Only square matrices can be decomposed.");
+        }
+        final int n = a.getBlockRows();
+        CompletableFuture<Matrix>[][] t = futures(n, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                t[i][j] = ready(a.getBlock(i, j));
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            t[k][k] = task(BlockOperation.FACTOR, t[k][k]);
+            for (int j = k + 1; j < n; j++) {
+                t[k][j] = task(BlockOperation.SOLVE_LOWER, t[k][k], t[k][j]);
+            }
+            for (int i = k + 1; i < n; i++) {
+                t[i][k] = task(BlockOperation.SOLVE_UPPER, t[k][k], t[i][k]);
+            }
+            for (int i = k + 1; i < n; i++) {
+                for (int j = k + 1; j < n; j++) {
+                    t[i][j] = task(BlockOperation.MULTIPLY_SUBTRACT, t[i][j], t[i][k], t[k][j]);
+                }
+            }
+        }
+        return collect(t, a.getBlockSize(), a.getRows(), a.getCols());
+    }
+
+    /**
+     * Adds a node to the task graph: the operation is dispatched once all of its
+     * operands are available.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    private final CompletableFuture<Matrix> task(BlockOperation operation,
+                                                 CompletableFuture<Matrix>... dependencies) {
+        return CompletableFuture.allOf(dependencies).thenApplyAsync(ignored -> {
+            Matrix[] operands = new Matrix[dependencies.length];
+            for (int i = 0; i < operands.length; i++) {
+                operands[i] = dependencies[i].join();
+            }
+            return worker.execute(operation, operands);
+        }, executor);
+    }
+
+    private static CompletableFuture<Matrix> ready(Matrix block) {
+        return CompletableFuture.completedFuture(block);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static CompletableFuture<Matrix>[][] futures(int rows, int cols) {
+        return new CompletableFuture[rows][cols];
+    }
+
+    private static CompletableFuture<TiledMatrix> collect(CompletableFuture<Matrix>[][] blocks,
+                                                          int blockSize, int rows, int cols) {
+        CompletableFuture<?>[] all = new CompletableFuture<?>[blocks.length * blocks[0].length];
+        for (int i = 0; i < blocks.length; i++) {
+            System.arraycopy(blocks[i], 0, all, i * blocks[0].length, blocks[0].length);
+        }
+        return CompletableFuture.allOf(all).thenApply(ignored -> {
+            Matrix[][] result = new Matrix[blocks.length][blocks[0].length];
+            for (int i = 0; i < blocks.length; i++) {
+                for (int j = 0; j < blocks[0].length; j++) {
+                    result[i][j] = blocks[i][j].join();
+                }
+            }
+            return new TiledMatrix(result, blockSize, rows, cols);
+        });
+    }
+}
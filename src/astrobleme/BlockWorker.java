@@ -0,0 +1,24 @@
+package astrobleme;
+
+/**
+ * Executes the individual block tasks of a {@link BlockScheduler}. The default
+ * worker runs them in the calling thread; other implementations may ship the
+ * operation and its operands to another process and wait for the result.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.01.28
+ */
+@FunctionalInterface
+public interface BlockWorker {
+    /**
+     * Runs every operation directly in the current thread.
+     */
+    BlockWorker LOCAL = BlockOperation::apply;
+
+    /**
+     * @param operation The operation to perform.
+     * @param operands  The operands, in the order the operation expects them.
+     * @return The resulting block.
+     */
+    Matrix execute(BlockOperation operation, Matrix... operands);
+}
@@ -0,0 +1,28 @@
+package astrobleme;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * A hook that long running computations call at convenient boundaries (like the
+ * end of a row or a pivot step) to find out whether they should give up early.
+ * This makes cancellation cooperative: no thread is ever interrupted, the work
+ * simply stops at the next checkpoint.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.01.26
+ */
+@FunctionalInterface
+interface Checkpoint {
+    /**
+     * The checkpoint used by the synchronous API. It never aborts anything.
+     */
+    Checkpoint NONE = () -> {
+    };
+
+    /**
+     * Returns normally if the computation may continue.
+     *
+     * @throws CancellationException If the computation must be abandoned.
+     */
+    void check() throws CancellationException;
+}
@@ -0,0 +1,141 @@
+package astrobleme;
+
+/**
+ * Decomposes a symmetric positive definite Matrix A into LL<sup>T</sup> in double
+ * precision, where L is lower triangular. Only the lower triangle of A is read, and
+ * L is stored packed (row i holds columns 0 to i). It needs half the work and
+ * memory of an LU decomposition. For exact results, see {@link LDLDecompose}.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.02
+ */
+public class CholeskyDecompose implements DoubleSolver {
+    private final double[][] L;
+
+    /**
+     * @param matrix The symmetric positive definite Matrix to decompose.
+     * @throws IllegalArgumentException If the Matrix is not symmetric.
+     * @throws ArithmeticException      If the Matrix is not positive definite (to
+     *                                  working precision).
+     */
+    public CholeskyDecompose(Matrix matrix) {
+        if (!matrix.isSymmetric()) {
+            throw new IllegalArgumentException("Only symmetric matrices can be decomposed.");
+        }
+        final Rational[][] a = matrix.array();
+        final int n = a.length;
+        L = new double[n][];
+        for (int i = 0; i < n; i++) {
+            double[] row = L[i] = new double[i + 1];
+            for (int j = 0; j <= i; j++) {
+                double[] other = L[j];
+                double sum = a[i][j].doubleValue();
+                for (int k = 0; k < j; k++) {
+                    sum -= row[k] * other[k];
+                }
+                if (i == j) {
+                    if (!(sum > 0)) {
+                        throw new ArithmeticException("Matrix is not positive definite.");
+                    }
+                    row[i] = Math.sqrt(sum);
+                } else {
+                    row[j] = sum / other[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The lower triangular factor L.
+     */
+    public double[][] getL() {
+        final int n = L.length;
+        double[][] l = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(L[i], 0, l[i], 0, i + 1);
+        }
+        return l;
+    }
+
+    /**
+     * Solves Ax = b for the decomposed matrix A.
+     *
+     * @param b The constants vector.
+     * @return The required solution vector.
+     * @throws IllegalArgumentException If the length of b does not match.
+     */
+    @Override
+    public double[] solve(double[] b) {
+        final int n = L.length;
+        if (b.length != n) {
+            throw new IllegalArgumentException("Incompatible constants vector.");
+        }
+        double[] x = b.clone();
+        for (int i = 0; i < n; i++) {
+            double[] row = L[i];
+            double sum = x[i];
+            for (int j = 0; j < i; j++) {
+                sum -= row[j] * x[j];
+            }
+            x[i] = sum / row[i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = x[i];
+            for (int j = i + 1; j < n; j++) {
+                sum -= L[j][i] * x[j];
+            }
+            x[i] = sum / L[i][i];
+        }
+        return x;
+    }
+
+    /**
+     * Solves AX = B for all the columns of B at once.
+     *
+     * @param b The matrix of constants, with one system per column.
+     * @return The matrix of solutions, one per column.
+     * @throws IllegalArgumentException If the number of rows of b does not match.
+     */
+    public double[][] solve(double[][] b) {
+        final int n = L.length;
+        if (b.length != n) {
+            throw new IllegalArgumentException("Incompatible constants matrix.");
+        }
+        final int m = n == 0 ? 0 : b[0].length;
+        double[][] x = new double[n][];
+        for (int i = 0; i < n; i++) {
+            x[i] = b[i].clone();
+        }
+        // Work on whole rows of X so that the inner loops are contiguous
+        for (int i = 0; i < n; i++) {
+            double[] row = L[i];
+            double[] xi = x[i];
+            for (int k = 0; k < i; k++) {
+                double factor = row[k];
+                double[] xk = x[k];
+                for (int j = 0; j < m; j++) {
+                    xi[j] -= factor * xk[j];
+                }
+            }
+            double pivot = row[i];
+            for (int j = 0; j < m; j++) {
+                xi[j] /= pivot;
+            }
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double[] xi = x[i];
+            for (int k = i + 1; k < n; k++) {
+                double factor = L[k][i];
+                double[] xk = x[k];
+                for (int j = 0; j < m; j++) {
+                    xi[j] -= factor * xk[j];
+                }
+            }
+            double pivot = L[i][i];
+            for (int j = 0; j < m; j++) {
+                xi[j] /= pivot;
+            }
+        }
+        return x;
+    }
+}
@@ -0,0 +1,195 @@
+package astrobleme;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static astrobleme.TestMatrices.RANDOM;
+import static astrobleme.TestMatrices.randomMatrix;
+import static org.testng.Assert.*;
+
+/**
+ * Stress tests for Matrices shared between threads. In the manner of jcstress,
+ * every round creates a fresh Matrix, releases a few threads on it at the same
+ * instant through a barrier, and then checks that every thread observed what a
+ * single thread would have.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class ConcurrencyTest {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int ROUNDS = 2000;
+    private static final int COUNT = 10;
+    private static final int LIMIT = 6;
+
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterClass
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testLazyProperties() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            int size = RANDOM.nextInt(LIMIT) + 1;
+            Rational[][] data = randomStructured(size);
+            // An identical instance, queried by one thread only
+            Properties expected = new Properties(new Matrix(data));
+            Matrix shared = new Matrix(data);
+            List<Properties> observed = race(() -> new Properties(shared));
+            for (Properties properties : observed) {
+                assertEquals(properties, expected);
+                assertSame(properties.transpose.transpose(), shared);
+            }
+        }
+    }
+
+    @Test
+    public void testSharedMultiply() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT * 3) + 1;
+            Matrix a = randomMatrix(size);
+            Matrix b = randomMatrix(size);
+            Matrix expected = new Matrix(MatrixOps.multiply(a.array(), b.array()));
+            for (Matrix product : race(() -> a.multiply(b))) {
+                assertEquals(product, expected);
+            }
+            // The transposes are created lazily during the race as well
+            Matrix transpose = expected.transpose();
+            for (Matrix product : race(() -> b.transpose().multiply(a.transpose()))) {
+                assertEquals(product, transpose);
+            }
+        }
+    }
+
+    @Test
+    public void testSharedSolve() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT * 3) + 1;
+            Matrix a = randomMatrix(size).add(Matrix.identity(size).multiply(new Rational(100)));
+            Rational[] x = randomMatrix(size).array()[0];
+            Rational[] b = new Rational[size];
+            for (int i = 0; i < size; i++) {
+                RationalAccumulator sum = new RationalAccumulator();
+                for (int j = 0; j < size; j++) {
+                    sum.addProduct(a.get(i, j), x[j]);
+                }
+                b[i] = sum.toRational();
+            }
+            LUPDecompose shared = new LUPDecompose(a);
+            for (Rational[] solution : race(() -> shared.solve(b))) {
+                assertEquals(solution, x);
+            }
+            for (Rational[] solution : race(() -> new LUPDecompose(a).solve(b))) {
+                assertEquals(solution, x);
+            }
+            MatrixCache cache = new MatrixCache(1 << 16);
+            for (Matrix inverse : race(() -> cache.inverse(a))) {
+                assertEquals(inverse.multiply(a), Matrix.identity(size));
+            }
+        }
+    }
+
+    /**
+     * Runs the action on all the threads, starting them together.
+     *
+     * @return What every thread observed.
+     */
+    private <T> List<T> race(Action<T> action) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                barrier.await();
+                return action.run();
+            }));
+        }
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    @FunctionalInterface
+    private interface Action<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * A snapshot of all the lazily computed properties, as seen by one thread.
+     */
+    private static final class Properties {
+        final Matrix transpose;
+        final int hashCode;
+        final boolean[] flags;
+
+        Properties(Matrix m) {
+            // Mix the order, so that the threads race on different fields
+            transpose = m.transpose();
+            flags = new boolean[]{
+                    m.isPermutation(), m.isDiagonal(), m.isSymmetric(), m.isIdentity(),
+                    m.isLowerTriangular(), m.isUpperTriangular(), m.isSquare(),
+                    transpose.isSymmetric(), transpose.isLowerTriangular()
+            };
+            hashCode = m.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Properties)) return false;
+            Properties p = (Properties) other;
+            return transpose.equals(p.transpose) && hashCode == p.hashCode
+                    && Arrays.equals(flags, p.flags);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(flags) + " " + hashCode + "\n" + transpose;
+        }
+    }
+
+    /**
+     * @return A random square array that often has some structure, so that the
+     * flags are not all false.
+     */
+    private static Rational[][] randomStructured(int size) {
+        int kind = RANDOM.nextInt(4);
+        Rational[][] a = new Rational[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                boolean zero = kind == 1 && j > i || kind == 2 && i != j;
+                a[i][j] = zero ? Rational.ZERO : new Rational(RANDOM.nextInt(3));
+            }
+        }
+        if (kind == 3) {
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < i; j++) {
+                    a[i][j] = a[j][i];
+                }
+            }
+        }
+        return a;
+    }
+}
@@ -0,0 +1,87 @@
+package astrobleme;
+
+/**
+ * The floating point counterpart of {@link LUPDecompose}. It uses partial pivoting
+ * (largest magnitude in the column) and stores L and U together in one array,
+ * with the unit diagonal of L implied.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.02
+ */
+class DoubleLUPDecompose implements DoubleSolver {
+    private final double[][] lu;
+    private final int[] pCompact;
+
+    /**
+     * @param a The square array to decompose. It is not modified.
+     * @throws ArithmeticException If a zero (or non-finite) pivot is found.
+     */
+    DoubleLUPDecompose(double[][] a) {
+        final int n = a.length;
+        lu = new double[n][];
+        pCompact = new int[n];
+        for (int i = 0; i < n; i++) {
+            lu[i] = a[i].clone();
+            pCompact[i] = i;
+        }
+        for (int k = 0; k < n; k++) {
+            int pivot = k;
+            for (int i = k + 1; i < n; i++) {
+                if (Math.abs(lu[i][k]) > Math.abs(lu[pivot][k])) {
+                    pivot = i;
+                }
+            }
+            double max = lu[pivot][k];
+            if (max == 0 || Double.isNaN(max) || Double.isInfinite(max)) {
+                throw new ArithmeticException("Matrix is singular to working precision.");
+            }
+            if (pivot != k) {
+                double[] row = lu[pivot];
+                lu[pivot] = lu[k];
+                lu[k] = row;
+                int index = pCompact[pivot];
+                pCompact[pivot] = pCompact[k];
+                pCompact[k] = index;
+            }
+            double[] rowK = lu[k];
+            for (int i = k + 1; i < n; i++) {
+                double[] rowI = lu[i];
+                double factor = rowI[k] / rowK[k];
+                rowI[k] = factor;
+                if (factor == 0) {
+                    continue;
+                }
+                for (int j = k + 1; j < n; j++) {
+                    rowI[j] -= factor * rowK[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * @param b The (unpermuted) constants vector.
+     * @return The solution x of Ax = b.
+     */
+    @Override
+    public double[] solve(double[] b) {
+        final int n = lu.length;
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = b[pCompact[i]];
+            double[] row = lu[i];
+            for (int j = 0; j < i; j++) {
+                sum -= row[j] * x[j];
+            }
+            x[i] = sum;
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = x[i];
+            double[] row = lu[i];
+            for (int j = i + 1; j < n; j++) {
+                sum -= row[j] * x[j];
+            }
+            x[i] = sum / row[i];
+        }
+        return x;
+    }
+}
@@ -0,0 +1,115 @@
+package astrobleme;
+
+/**
+ * A square Matrix converted to primitive storage, for the iterative methods that
+ * only need matrix-vector products. Sparse matrices are stored in compressed rows
+ * (the column indices and values of the non-zero elements, row after row), so that
+ * the work and memory are proportional to the number of non-zero elements. Denser
+ * ones are stored as plain rows of doubles.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.06
+ */
+abstract class DoubleOperator {
+    /**
+     * @param matrix The square Matrix to convert.
+     * @return The compressed or the dense form, whichever is more compact.
+     */
+    static DoubleOperator of(Matrix matrix) {
+        final Rational[][] a = matrix.array();
+        final int n = a.length;
+        long count = 0;
+        for (Rational[] row : a) {
+            for (Rational element : row) {
+                if (!element.isZero()) {
+                    count++;
+                }
+            }
+        }
+        // An index and a value per element only pay off below two-thirds density
+        if (3 * count >= 2L * n * n) {
+            return new Dense(matrix.toDoubleArray());
+        }
+        int[] start = new int[n + 1];
+        int[] index = new int[(int) count];
+        double[] value = new double[(int) count];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            start[i] = k;
+            for (int j = 0; j < n; j++) {
+                if (!a[i][j].isZero()) {
+                    index[k] = j;
+                    value[k++] = a[i][j].doubleValue();
+                }
+            }
+        }
+        start[n] = k;
+        return new Sparse(start, index, value);
+    }
+
+    /**
+     * @return The number of rows (and columns).
+     */
+    abstract int size();
+
+    /**
+     * Computes y = Ax.
+     *
+     * @param x The vector to multiply.
+     * @param y The vector to store the product in.
+     */
+    abstract void multiply(double[] x, double[] y);
+
+    private static final class Dense extends DoubleOperator {
+        private final double[][] a;
+
+        Dense(final double[][] a) {
+            this.a = a;
+        }
+
+        @Override
+        int size() {
+            return a.length;
+        }
+
+        @Override
+        void multiply(double[] x, double[] y) {
+            for (int i = 0; i < a.length; i++) {
+                double[] row = a[i];
+                double sum = 0;
+                for (int j = 0; j < row.length; j++) {
+                    sum += row[j] * x[j];
+                }
+                y[i] = sum;
+            }
+        }
+    }
+
+    private static final class Sparse extends DoubleOperator {
+        private final int[] start;
+        private final int[] index;
+        private final double[] value;
+
+        Sparse(final int[] start, final int[] index, final double[] value) {
+            this.start = start;
+            this.index = index;
+            this.value = value;
+        }
+
+        @Override
+        int size() {
+            return start.length - 1;
+        }
+
+        @Override
+        void multiply(double[] x, double[] y) {
+            for (int i = 0; i < start.length - 1; i++) {
+                double sum = 0;
+                for (int k = start[i]; k < start[i + 1]; k++) {
+                    sum += value[k] * x[index[k]];
+                }
+                y[i] = sum;
+            }
+        }
+    }
+}
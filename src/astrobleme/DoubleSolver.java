@@ -0,0 +1,16 @@
+package astrobleme;
+
+/**
+ * A factored system of linear equations in double precision, ready to be solved
+ * for any number of constants vectors.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.02
+ */
+interface DoubleSolver {
+    /**
+     * @param b The constants vector.
+     * @return The solution x of Ax = b.
+     */
+    double[] solve(double[] b);
+}
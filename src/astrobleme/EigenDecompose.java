@@ -0,0 +1,564 @@
+package astrobleme;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Computes all the eigenvalues of a square Matrix in double precision. Since the
+ * eigenvalues are in general irrational, there is no exact counterpart.
+ * <p>
+ * Symmetric matrices are reduced to tridiagonal form by Householder reflections,
+ * which is then diagonalized by the implicit QL algorithm. Their eigenvalues are
+ * real and an orthonormal set of eigenvectors is found along with them. General
+ * matrices are reduced to upper Hessenberg form and the eigenvalues (which may come
+ * in complex conjugate pairs) are found by the shifted (Francis double shift) QR
+ * algorithm; no eigenvectors are computed for them.
+ * <p>
+ * The eigenvalues are sorted in ascending order of their real parts, and then of
+ * their imaginary parts. For only a few eigenpairs of a large Matrix, see
+ * {@link PartialEigen}.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class EigenDecompose {
+    private static final double EPSILON = Math.ulp(1.0);
+    // Shifted QR normally needs two or three iterations per eigenvalue
+    private static final int ITERATIONS_PER_EIGENVALUE = 30;
+
+    private final boolean symmetric;
+    private final double[] real;
+    private final double[] imaginary;
+    // Row k is the eigenvector of the k-th eigenvalue (symmetric matrices only)
+    private final double[][] vectors;
+
+    /**
+     * @param matrix The square Matrix to decompose.
+     * @throws IllegalArgumentException If the Matrix is not square.
+     * @throws ArithmeticException      If the elements do not fit in a double, or
+     *                                  (very rarely) if the iteration fails to
+     *                                  converge.
+     */
+    public EigenDecompose(Matrix matrix) {
+        this(toSquareArray(matrix), matrix.isSymmetric());
+    }
+
+    /**
+     * @param a         The square array to decompose. It is overwritten.
+     * @param symmetric Whether the array is known to be symmetric.
+     */
+    EigenDecompose(double[][] a, boolean symmetric) {
+        final int n = a.length;
+        for (double[] row : a) {
+            for (double element : row) {
+                if (Double.isNaN(element) || Double.isInfinite(element)) {
+                    throw new ArithmeticException("Elements must be finite in double precision.");
+                }
+            }
+        }
+        this.symmetric = symmetric;
+        real = new double[n];
+        imaginary = new double[n];
+        if (symmetric) {
+            double[] e = new double[n];
+            tridiagonalize(a, real, e);
+            diagonalize(a, real, e);
+            // The columns of a are now the eigenvectors
+            vectors = new double[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    vectors[j][i] = a[i][j];
+                }
+            }
+        } else {
+            hessenberg(a);
+            shiftedQR(a, real, imaginary);
+            vectors = null;
+        }
+        sort();
+    }
+
+    private static double[][] toSquareArray(Matrix matrix) {
+        if (!matrix.isSquare()) {
+            throw new IllegalArgumentException("Only square matrices have eigenvalues.");
+        }
+        return matrix.toDoubleArray();
+    }
+
+    /**
+     * @return {@code true} if the Matrix was symmetric, and so the eigenvalues are
+     * real and the eigenvectors are available.
+     */
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    /**
+     * @return The real parts of the eigenvalues.
+     */
+    public double[] getRealEigenvalues() {
+        return real.clone();
+    }
+
+    /**
+     * @return The imaginary parts of the eigenvalues.
+     */
+    public double[] getImaginaryEigenvalues() {
+        return imaginary.clone();
+    }
+
+    /**
+     * @param index The index of the eigenvalue.
+     * @return The unit eigenvector of the eigenvalue at the given index.
+     * @throws IllegalStateException If the Matrix was not symmetric.
+     */
+    public double[] getEigenvector(int index) {
+        if (vectors == null) {
+            throw new IllegalStateException(
+                    "Eigenvectors are only computed for symmetric matrices.");
+        }
+        return vectors[index].clone();
+    }
+
+    private void sort() {
+        final int n = real.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> real[i])
+                .thenComparingDouble(i -> imaginary[i]));
+        double[] re = real.clone();
+        double[] im = imaginary.clone();
+        double[][] v = vectors == null ? null : vectors.clone();
+        for (int i = 0; i < n; i++) {
+            real[i] = re[order[i]];
+            imaginary[i] = im[order[i]];
+            if (v != null) {
+                vectors[i] = v[order[i]];
+            }
+        }
+    }
+
+    /**
+     * Householder reduction of the symmetric array v to tridiagonal form. On
+     * return, d holds the diagonal, e holds the subdiagonal in e[1..n-1], and v
+     * holds the accumulated orthogonal transformation.
+     */
+    private static void tridiagonalize(double[][] v, double[] d, double[] e) {
+        final int n = v.length;
+        if (n == 0) {
+            return;
+        }
+        for (int j = 0; j < n; j++) {
+            d[j] = v[n - 1][j];
+        }
+        for (int i = n - 1; i > 0; i--) {
+            // Scale to avoid under or overflow
+            double scale = 0;
+            double h = 0;
+            for (int k = 0; k < i; k++) {
+                scale += Math.abs(d[k]);
+            }
+            if (scale == 0) {
+                e[i] = d[i - 1];
+                for (int j = 0; j < i; j++) {
+                    d[j] = v[i - 1][j];
+                    v[i][j] = 0;
+                    v[j][i] = 0;
+                }
+            } else {
+                // Generate the Householder vector
+                for (int k = 0; k < i; k++) {
+                    d[k] /= scale;
+                    h += d[k] * d[k];
+                }
+                double f = d[i - 1];
+                double g = f > 0 ? -Math.sqrt(h) : Math.sqrt(h);
+                e[i] = scale * g;
+                h -= f * g;
+                d[i - 1] = f - g;
+                for (int j = 0; j < i; j++) {
+                    e[j] = 0;
+                }
+                // Apply the similarity transformation to the remaining columns
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    v[j][i] = f;
+                    g = e[j] + v[j][j] * f;
+                    for (int k = j + 1; k < i; k++) {
+                        g += v[k][j] * d[k];
+                        e[k] += v[k][j] * f;
+                    }
+                    e[j] = g;
+                }
+                f = 0;
+                for (int j = 0; j < i; j++) {
+                    e[j] /= h;
+                    f += e[j] * d[j];
+                }
+                double hh = f / (h + h);
+                for (int j = 0; j < i; j++) {
+                    e[j] -= hh * d[j];
+                }
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    g = e[j];
+                    for (int k = j; k < i; k++) {
+                        v[k][j] -= f * e[k] + g * d[k];
+                    }
+                    d[j] = v[i - 1][j];
+                    v[i][j] = 0;
+                }
+            }
+            d[i] = h;
+        }
+        // Accumulate the transformations
+        for (int i = 0; i < n - 1; i++) {
+            v[n - 1][i] = v[i][i];
+            v[i][i] = 1;
+            double h = d[i + 1];
+            if (h != 0) {
+                for (int k = 0; k <= i; k++) {
+                    d[k] = v[k][i + 1] / h;
+                }
+                for (int j = 0; j <= i; j++) {
+                    double g = 0;
+                    for (int k = 0; k <= i; k++) {
+                        g += v[k][i + 1] * v[k][j];
+                    }
+                    for (int k = 0; k <= i; k++) {
+                        v[k][j] -= g * d[k];
+                    }
+                }
+            }
+            for (int k = 0; k <= i; k++) {
+                v[k][i + 1] = 0;
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            d[j] = v[n - 1][j];
+            v[n - 1][j] = 0;
+        }
+        v[n - 1][n - 1] = 1;
+        e[0] = 0;
+    }
+
+    /**
+     * Implicit QL iterations on the symmetric tridiagonal matrix (d, e), with the
+     * rotations accumulated into v. On return, d holds the eigenvalues and the
+     * columns of v the eigenvectors.
+     */
+    private static void diagonalize(double[][] v, double[] d, double[] e) {
+        final int n = d.length;
+        for (int i = 1; i < n; i++) {
+            e[i - 1] = e[i];
+        }
+        if (n > 0) {
+            e[n - 1] = 0;
+        }
+        double f = 0;
+        double norm = 0;
+        int iterations = 0;
+        for (int l = 0; l < n; l++) {
+            // Find a small subdiagonal element
+            norm = Math.max(norm, Math.abs(d[l]) + Math.abs(e[l]));
+            int m = l;
+            while (m < n - 1 && Math.abs(e[m]) > EPSILON * norm) {
+                m++;
+            }
+            // If m == l, d[l] is already an eigenvalue, otherwise iterate
+            while (m > l && Math.abs(e[l]) > EPSILON * norm) {
+                if (++iterations > ITERATIONS_PER_EIGENVALUE * n) {
+                    throw new ArithmeticException("Eigenvalues did not converge.");
+                }
+                // Compute the implicit shift
+                double g = d[l];
+                double p = (d[l + 1] - g) / (2 * e[l]);
+                double r = Math.hypot(p, 1);
+                if (p < 0) {
+                    r = -r;
+                }
+                d[l] = e[l] / (p + r);
+                d[l + 1] = e[l] * (p + r);
+                double dl1 = d[l + 1];
+                double h = g - d[l];
+                for (int i = l + 2; i < n; i++) {
+                    d[i] -= h;
+                }
+                f += h;
+                // Implicit QL transformation
+                p = d[m];
+                double c = 1;
+                double c2 = c;
+                double c3 = c;
+                double el1 = e[l + 1];
+                double s = 0;
+                double s2 = 0;
+                for (int i = m - 1; i >= l; i--) {
+                    c3 = c2;
+                    c2 = c;
+                    s2 = s;
+                    g = c * e[i];
+                    h = c * p;
+                    r = Math.hypot(p, e[i]);
+                    e[i + 1] = s * r;
+                    s = e[i] / r;
+                    c = p / r;
+                    p = c * d[i] - s * g;
+                    d[i + 1] = h + s * (c * g + s * d[i]);
+                    for (int k = 0; k < n; k++) {
+                        h = v[k][i + 1];
+                        v[k][i + 1] = s * v[k][i] + c * h;
+                        v[k][i] = c * v[k][i] - s * h;
+                    }
+                }
+                p = -s * s2 * c3 * el1 * e[l] / dl1;
+                e[l] = s * p;
+                d[l] = c * p;
+            }
+            d[l] += f;
+            e[l] = 0;
+        }
+    }
+
+    /**
+     * Reduces the array to upper Hessenberg form by Householder similarity
+     * transformations. The transformations themselves are not kept.
+     */
+    private static void hessenberg(double[][] h) {
+        final int n = h.length;
+        double[] u = new double[n];
+        for (int m = 1; m < n - 1; m++) {
+            double scale = 0;
+            for (int i = m; i < n; i++) {
+                scale += Math.abs(h[i][m - 1]);
+            }
+            if (scale == 0) {
+                continue;
+            }
+            // Compute the Householder vector u, so that the reflection is I - uu'/norm
+            double norm = 0;
+            for (int i = n - 1; i >= m; i--) {
+                u[i] = h[i][m - 1] / scale;
+                norm += u[i] * u[i];
+            }
+            double g = u[m] > 0 ? -Math.sqrt(norm) : Math.sqrt(norm);
+            norm -= u[m] * g;
+            u[m] -= g;
+            // Apply it from the left, then from the right
+            for (int j = m; j < n; j++) {
+                double f = 0;
+                for (int i = n - 1; i >= m; i--) {
+                    f += u[i] * h[i][j];
+                }
+                f /= norm;
+                for (int i = m; i < n; i++) {
+                    h[i][j] -= f * u[i];
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                double f = 0;
+                for (int j = n - 1; j >= m; j--) {
+                    f += u[j] * h[i][j];
+                }
+                f /= norm;
+                for (int j = m; j < n; j++) {
+                    h[i][j] -= f * u[j];
+                }
+            }
+            h[m][m - 1] = scale * g;
+            for (int i = m + 1; i < n; i++) {
+                h[i][m - 1] = 0;
+            }
+        }
+    }
+
+    /**
+     * Finds the eigenvalues of the upper Hessenberg array by the Francis double
+     * shift QR algorithm. The array is destroyed.
+     */
+    private static void shiftedQR(double[][] h, double[] d, double[] e) {
+        final int size = h.length;
+        double norm = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = Math.max(i - 1, 0); j < size; j++) {
+                norm += Math.abs(h[i][j]);
+            }
+        }
+        double shift = 0;
+        double p = 0;
+        double q = 0;
+        double r = 0;
+        double s;
+        double w;
+        double x;
+        double y;
+        double z;
+        int iterations = 0;
+        int total = 0;
+        int n = size - 1;
+        while (n >= 0) {
+            // Look for a single small subdiagonal element
+            int l = n;
+            while (l > 0) {
+                s = Math.abs(h[l - 1][l - 1]) + Math.abs(h[l][l]);
+                if (s == 0) {
+                    s = norm;
+                }
+                if (Math.abs(h[l][l - 1]) < EPSILON * s) {
+                    break;
+                }
+                l--;
+            }
+            if (l == n) {
+                // One root found
+                d[n] = h[n][n] + shift;
+                e[n] = 0;
+                n--;
+                iterations = 0;
+            } else if (l == n - 1) {
+                // Two roots found
+                w = h[n][n - 1] * h[n - 1][n];
+                p = (h[n - 1][n - 1] - h[n][n]) / 2;
+                q = p * p + w;
+                z = Math.sqrt(Math.abs(q));
+                x = h[n][n] + shift;
+                if (q >= 0) {
+                    // A real pair
+                    z = p >= 0 ? p + z : p - z;
+                    d[n - 1] = x + z;
+                    d[n] = z != 0 ? x - w / z : x + z;
+                    e[n - 1] = 0;
+                    e[n] = 0;
+                } else {
+                    // A complex pair
+                    d[n - 1] = x + p;
+                    d[n] = x + p;
+                    e[n - 1] = z;
+                    e[n] = -z;
+                }
+                n -= 2;
+                iterations = 0;
+            } else {
+                if (++total > ITERATIONS_PER_EIGENVALUE * size) {
+                    throw new ArithmeticException("Eigenvalues did not converge.");
+                }
+                // Form the shift
+                x = h[n][n];
+                y = h[n - 1][n - 1];
+                w = h[n][n - 1] * h[n - 1][n];
+                // Exceptional shifts, to break out of cycles
+                if (iterations == 10) {
+                    shift += x;
+                    for (int i = 0; i <= n; i++) {
+                        h[i][i] -= x;
+                    }
+                    s = Math.abs(h[n][n - 1]) + Math.abs(h[n - 1][n - 2]);
+                    x = y = 0.75 * s;
+                    w = -0.4375 * s * s;
+                }
+                if (iterations == 30) {
+                    s = (y - x) / 2;
+                    s = s * s + w;
+                    if (s > 0) {
+                        s = Math.sqrt(s);
+                        if (y < x) {
+                            s = -s;
+                        }
+                        s = x - w / ((y - x) / 2 + s);
+                        for (int i = 0; i <= n; i++) {
+                            h[i][i] -= s;
+                        }
+                        shift += s;
+                        x = y = w = 0.964;
+                    }
+                }
+                iterations++;
+                // Look for two consecutive small subdiagonal elements
+                int m = n - 2;
+                while (m >= l) {
+                    z = h[m][m];
+                    r = x - z;
+                    s = y - z;
+                    p = (r * s - w) / h[m + 1][m] + h[m][m + 1];
+                    q = h[m + 1][m + 1] - z - r - s;
+                    r = h[m + 2][m + 1];
+                    s = Math.abs(p) + Math.abs(q) + Math.abs(r);
+                    p /= s;
+                    q /= s;
+                    r /= s;
+                    if (m == l) {
+                        break;
+                    }
+                    if (Math.abs(h[m][m - 1]) * (Math.abs(q) + Math.abs(r))
+                            < EPSILON * (Math.abs(p) * (Math.abs(h[m - 1][m - 1])
+                            + Math.abs(z) + Math.abs(h[m + 1][m + 1])))) {
+                        break;
+                    }
+                    m--;
+                }
+                for (int i = m + 2; i <= n; i++) {
+                    h[i][i - 2] = 0;
+                    if (i > m + 2) {
+                        h[i][i - 3] = 0;
+                    }
+                }
+                // Double QR step on rows l to n and columns m to n
+                for (int k = m; k <= n - 1; k++) {
+                    boolean notLast = k != n - 1;
+                    if (k != m) {
+                        p = h[k][k - 1];
+                        q = h[k + 1][k - 1];
+                        r = notLast ? h[k + 2][k - 1] : 0;
+                        x = Math.abs(p) + Math.abs(q) + Math.abs(r);
+                        if (x == 0) {
+                            continue;
+                        }
+                        p /= x;
+                        q /= x;
+                        r /= x;
+                    }
+                    s = Math.sqrt(p * p + q * q + r * r);
+                    if (p < 0) {
+                        s = -s;
+                    }
+                    if (s == 0) {
+                        continue;
+                    }
+                    if (k != m) {
+                        h[k][k - 1] = -s * x;
+                    } else if (l != m) {
+                        h[k][k - 1] = -h[k][k - 1];
+                    }
+                    p += s;
+                    x = p / s;
+                    y = q / s;
+                    z = r / s;
+                    q /= p;
+                    r /= p;
+                    // Row modification
+                    for (int j = k; j <= n; j++) {
+                        p = h[k][j] + q * h[k + 1][j];
+                        if (notLast) {
+                            p += r * h[k + 2][j];
+                            h[k + 2][j] -= p * z;
+                        }
+                        h[k][j] -= p * x;
+                        h[k + 1][j] -= p * y;
+                    }
+                    // Column modification
+                    for (int i = l; i <= Math.min(n, k + 3); i++) {
+                        p = x * h[i][k] + y * h[i][k + 1];
+                        if (notLast) {
+                            p += z * h[i][k + 2];
+                            h[i][k + 2] -= p * r;
+                        }
+                        h[i][k] -= p;
+                        h[i][k + 1] -= p * q;
+                    }
+                }
+            }
+        }
+    }
+}
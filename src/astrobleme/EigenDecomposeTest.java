@@ -0,0 +1,200 @@
+package astrobleme;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static astrobleme.TestMatrices.RANDOM;
+import static astrobleme.TestMatrices.randomMatrix;
+import static org.testng.Assert.*;
+
+/**
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class EigenDecomposeTest {
+
+    private static final int COUNT = 10;
+    private static final int LIMIT = 15;
+    private static final double TOLERANCE = 1e-8;
+
+    @Test
+    public void testSymmetric() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT) + 1;
+            Matrix b = randomMatrix(size);
+            Matrix a = b.add(b.transpose());
+            EigenDecompose eigen = new EigenDecompose(a);
+            assertTrue(eigen.isSymmetric());
+            double[] values = eigen.getRealEigenvalues();
+            double[][] data = a.toDoubleArray();
+            double trace = 0;
+            for (int i = 0; i < size; i++) {
+                trace += data[i][i];
+                assertEquals(eigen.getImaginaryEigenvalues()[i], 0.0);
+                if (i > 0) {
+                    assertTrue(values[i - 1] <= values[i]);
+                }
+                double[] v = eigen.getEigenvector(i);
+                assertEquals(norm(v), 1, TOLERANCE);
+                assertTrue(residual(data, values[i], v) <= TOLERANCE * (1 + Math.abs(values[i])));
+                for (int j = 0; j < i; j++) {
+                    assertEquals(dot(v, eigen.getEigenvector(j)), 0, TOLERANCE);
+                }
+            }
+            assertEquals(Arrays.stream(values).sum(), trace, TOLERANCE * size);
+        }
+    }
+
+    @Test
+    public void testGeneral() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT) + 2;
+            // P D P^-1 has the (distinct) diagonal elements of D as eigenvalues
+            double[] expected = new double[size];
+            Rational[][] d = new Rational[size][size];
+            for (int i = 0; i < size; i++) {
+                Arrays.fill(d[i], Rational.ZERO);
+                expected[i] = 3 * i - size;
+                d[i][i] = new Rational((long) expected[i]);
+            }
+            Matrix p = randomMatrix(size).add(Matrix.identity(size).multiply(new Rational(size * 10)));
+            Matrix a = p.multiply(new Matrix(d)).multiply(p.inverse());
+            EigenDecompose eigen = new EigenDecompose(a);
+            assertFalse(eigen.isSymmetric());
+            double[] real = eigen.getRealEigenvalues();
+            double[] imaginary = eigen.getImaginaryEigenvalues();
+            for (int i = 0; i < size; i++) {
+                assertEquals(real[i], expected[i], 1e-6 * size);
+                assertEquals(imaginary[i], 0, 1e-6 * size);
+            }
+        }
+    }
+
+    @Test
+    public void testComplex() throws Exception {
+        // The companion matrix of x^3 - 1, whose roots are the cube roots of unity
+        Matrix a = new Matrix(new double[][]{{0, 0, 1}, {1, 0, 0}, {0, 1, 0}});
+        EigenDecompose eigen = new EigenDecompose(a);
+        double[] real = eigen.getRealEigenvalues();
+        double[] imaginary = eigen.getImaginaryEigenvalues();
+        double root = Math.sqrt(3) / 2;
+        assertClose(real, new double[]{-0.5, -0.5, 1});
+        assertClose(imaginary, new double[]{-root, root, 0});
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testGeneralEigenvector() throws Exception {
+        new EigenDecompose(new Matrix(new double[][]{{1, 2}, {3, 4}})).getEigenvector(0);
+    }
+
+    @Test
+    public void testLanczos() throws Exception {
+        int size = 500;
+        int k = 6;
+        Matrix a = pathLaplacian(size);
+        PartialEigen eigen = PartialEigen.lanczos(a, k);
+        double[] values = eigen.getEigenvalues();
+        double[][] data = a.toDoubleArray();
+        for (int i = 0; i < k; i++) {
+            // The eigenvalues are 2 - 2 cos(j pi / (n + 1)), the largest for j = n
+            double expected = 2 - 2 * Math.cos((size - i) * Math.PI / (size + 1));
+            assertEquals(values[i], expected, TOLERANCE);
+            double[] v = eigen.getEigenvector(i);
+            assertEquals(norm(v), 1, TOLERANCE);
+            assertTrue(residual(data, values[i], v) <= TOLERANCE);
+        }
+    }
+
+    @Test
+    public void testPartialAgreesWithFull() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT) + 1;
+            Matrix b = randomMatrix(size);
+            Matrix a = b.add(b.transpose());
+            int k = RANDOM.nextInt(size) + 1;
+            double[] all = new EigenDecompose(a).getRealEigenvalues();
+            double[] top = PartialEigen.lanczos(a, k).getEigenvalues();
+            for (int i = 0; i < k; i++) {
+                // Compare magnitudes, since ties in magnitude may come in either order
+                double expected = Math.max(Math.abs(all[0]), Math.abs(all[size - 1]));
+                if (i == 0) {
+                    assertEquals(Math.abs(top[i]), expected, TOLERANCE * (1 + expected));
+                }
+                boolean found = false;
+                for (double value : all) {
+                    found |= Math.abs(value - top[i]) <= TOLERANCE * (1 + expected);
+                }
+                assertTrue(found);
+                if (i > 0) {
+                    assertTrue(Math.abs(top[i - 1]) >= Math.abs(top[i]) - TOLERANCE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPower() throws Exception {
+        Matrix a = pathLaplacian(30);
+        PartialEigen eigen = PartialEigen.power(a, 2);
+        double[] values = eigen.getEigenvalues();
+        double[] expected = PartialEigen.lanczos(a, 2).getEigenvalues();
+        assertClose(values, expected);
+
+        // A dominant eigenvalue of 10 for an unsymmetric Matrix
+        Matrix p = new Matrix(new double[][]{{1, 2, 0}, {0, 1, 3}, {1, 0, 1}});
+        Matrix d = new Matrix(new double[][]{{10, 0, 0}, {0, 2, 0}, {0, 0, -1}});
+        Matrix b = p.multiply(d).multiply(p.inverse());
+        assertEquals(PartialEigen.power(b, 1).getEigenvalues()[0], 10, TOLERANCE);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testLanczosUnsymmetric() throws Exception {
+        PartialEigen.lanczos(new Matrix(new double[][]{{1, 2}, {3, 4}}), 1);
+    }
+
+    /**
+     * @return The Laplacian of a path graph: tridiagonal with 2 on the diagonal
+     * and -1 beside it.
+     */
+    private static Matrix pathLaplacian(int size) {
+        Rational[][] a = new Rational[size][size];
+        Rational minusOne = Rational.ONE.negate();
+        for (int i = 0; i < size; i++) {
+            Arrays.fill(a[i], Rational.ZERO);
+            a[i][i] = new Rational(2);
+            if (i > 0) {
+                a[i][i - 1] = a[i - 1][i] = minusOne;
+            }
+        }
+        return new Matrix(a);
+    }
+
+    private static void assertClose(double[] actual, double[] expected) {
+        assertEquals(actual.length, expected.length);
+        for (int i = 0; i < actual.length; i++) {
+            assertEquals(actual[i], expected[i], TOLERANCE);
+        }
+    }
+
+    private static double residual(double[][] a, double value, double[] v) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            double r = dot(a[i], v) - value * v[i];
+            sum += r * r;
+        }
+        return Math.sqrt(sum);
+    }
+
+    private static double dot(double[] x, double[] y) {
+        double sum = 0;
+        for (int i = 0; i < x.length; i++) {
+            sum += x[i] * y[i];
+        }
+        return sum;
+    }
+
+    private static double norm(double[] x) {
+        return Math.sqrt(dot(x, x));
+    }
+}
@@ -0,0 +1,141 @@
+package astrobleme;
+
+/**
+ * Decomposes a symmetric Matrix A into LDL<sup>T</sup>, where L is unit lower
+ * triangular and D is diagonal. Unlike the Cholesky decomposition, no square roots
+ * are needed, so the factors are exact. Only the lower triangle of A is read and
+ * only the strictly lower part of L is stored (packed, as in {@link PackedOps}),
+ * which takes half the work and memory of {@link LUPDecompose}.
+ * <p>
+ * There is no pivoting, which is fine for definite matrices. A zero pivot (which
+ * may occur for indefinite ones) is reported as an {@link ArithmeticException}, in
+ * which case {@link LUPDecompose} should be used instead.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.05
+ */
+public class LDLDecompose {
+    // Row i holds the elements of L in columns 0 to i - 1
+    private final Rational[][] L;
+    private final Rational[] D;
+
+    /**
+     * @param matrix The symmetric Matrix to decompose.
+     * @throws IllegalArgumentException If the Matrix is not symmetric.
+     * @throws ArithmeticException      If a zero pivot is encountered.
+     */
+    public LDLDecompose(Matrix matrix) {
+        if (!matrix.isSymmetric()) {
+            throw new IllegalArgumentException("Only symmetric matrices can be decomposed.");
+        }
+        final Rational[][] a = matrix.array();
+        final int n = a.length;
+        L = new Rational[n][];
+        D = new Rational[n];
+        RationalAccumulator sum = new RationalAccumulator();
+        for (int i = 0; i < n; i++) {
+            L[i] = new Rational[i];
+            // e[k] = L(i, k) D(k), reused for the rest of the row
+            Rational[] e = new Rational[i];
+            for (int j = 0; j < i; j++) {
+                sum.reset().add(a[i][j]);
+                for (int k = 0; k < j; k++) {
+                    sum.subtractProduct(e[k], L[j][k]);
+                }
+                e[j] = sum.toRational();
+                L[i][j] = e[j].divide(D[j]);
+            }
+            sum.reset().add(a[i][i]);
+            for (int k = 0; k < i; k++) {
+                sum.subtractProduct(e[k], L[i][k]);
+            }
+            D[i] = sum.toRational();
+            if (D[i].isZero()) {
+                throw new ArithmeticException("Zero pivot; LDL^T does not pivot.");
+            }
+        }
+    }
+
+    /**
+     * @return The unit lower triangular factor L.
+     */
+    public Matrix getL() {
+        final int n = L.length;
+        Rational[][] l = new Rational[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                l[i][j] = j < i ? L[i][j] : i == j ? Rational.ONE : Rational.ZERO;
+            }
+        }
+        return new Matrix(l, false);
+    }
+
+    /**
+     * @return The diagonal factor D.
+     */
+    public Matrix getD() {
+        final int n = D.length;
+        Rational[][] d = new Rational[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                d[i][j] = i == j ? D[i] : Rational.ZERO;
+            }
+        }
+        return new Matrix(d, false);
+    }
+
+    /**
+     * Solves Ax = b for the decomposed matrix A.
+     *
+     * @param b The constants vector.
+     * @return The required solution vector.
+     * @throws IllegalArgumentException If the length of b does not match.
+     */
+    public Rational[] solve(Rational[] b) {
+        final int n = D.length;
+        if (b.length != n) {
+            throw new IllegalArgumentException("Incompatible constants vector.");
+        }
+        Rational[] x = new Rational[n];
+        RationalAccumulator sum = new RationalAccumulator();
+        // Forward substitution with L, then scaling by D
+        for (int i = 0; i < n; i++) {
+            sum.reset().add(b[i]);
+            for (int j = 0; j < i; j++) {
+                sum.subtractProduct(L[i][j], x[j]);
+            }
+            x[i] = sum.toRational();
+        }
+        for (int i = 0; i < n; i++) {
+            x[i] = x[i].divide(D[i]);
+        }
+        // Backward substitution with the transpose of L
+        for (int i = n - 1; i >= 0; i--) {
+            sum.reset().add(x[i]);
+            for (int j = i + 1; j < n; j++) {
+                sum.subtractProduct(L[j][i], x[j]);
+            }
+            x[i] = sum.toRational();
+        }
+        return x;
+    }
+
+    /**
+     * Solves AX = B for all the columns of B at once.
+     *
+     * @param b The matrix of constants, one system per column.
+     * @return The matrix of solutions, one per column.
+     * @throws IllegalArgumentException If the number of rows of b does not match.
+     */
+    public Matrix solve(Matrix b) {
+        if (b.getRows() != D.length) {
+            throw new IllegalArgumentException("Incompatible constants matrix.");
+        }
+        Rational[][] t = b.transpose().array();
+        Rational[][] x = new Rational[t.length][];
+        for (int j = 0; j < t.length; j++) {
+            x[j] = solve(t[j]);
+        }
+        return new Matrix(x, false).transpose();
+    }
+}
@@ -0,0 +1,70 @@
+package astrobleme;
+
+import org.testng.annotations.Test;
+
+import static astrobleme.TestMatrices.RANDOM;
+import static astrobleme.TestMatrices.randomMatrix;
+import static org.testng.Assert.*;
+
+/**
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class LDLDecomposeTest {
+
+    private static final int COUNT = 10;
+    private static final int LIMIT = 15;
+
+    @Test
+    public void testLDL() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT) + 1;
+            Matrix a = randomPositiveDefinite(size);
+            LDLDecompose ldl = new LDLDecompose(a);
+            assertEquals(ldl.getL().multiply(ldl.getD()).multiply(ldl.getL().transpose()), a);
+
+            Matrix x = randomMatrix(size, RANDOM.nextInt(3) + 1);
+            assertEquals(ldl.solve(a.multiply(x)), x);
+            assertEquals(AdaptiveSolver.solve(a, column(a.multiply(x), 0)), column(x, 0));
+        }
+    }
+
+    @Test
+    public void testCholesky() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT) + 1;
+            Matrix a = randomPositiveDefinite(size);
+            CholeskyDecompose cholesky = new CholeskyDecompose(a);
+            Matrix l = new Matrix(cholesky.getL());
+            assertTrue(l.multiply(l.transpose()).approximatelyEquals(a, new Rational(1, 1000000)));
+
+            Matrix x = randomMatrix(size, RANDOM.nextInt(3) + 1);
+            double[][] y = cholesky.solve(a.multiply(x).toDoubleArray());
+            assertTrue(new Matrix(y).approximatelyEquals(x, new Rational(1, 1000000)));
+        }
+    }
+
+    @Test(expectedExceptions = ArithmeticException.class)
+    public void testIndefinite() throws Exception {
+        new CholeskyDecompose(new Matrix(new double[][]{{1, 2}, {2, 1}}));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsymmetric() throws Exception {
+        new LDLDecompose(new Matrix(new double[][]{{1, 2}, {3, 4}}));
+    }
+
+    private static Matrix randomPositiveDefinite(int size) {
+        // B B^T + I is always symmetric positive definite
+        Matrix b = randomMatrix(size, size);
+        return b.multiply(b.transpose()).add(Matrix.identity(size));
+    }
+
+    private static Rational[] column(Matrix m, int j) {
+        Rational[] column = new Rational[m.getRows()];
+        for (int i = 0; i < column.length; i++) {
+            column[i] = m.get(i, j);
+        }
+        return column;
+    }
+}
@@ -1,10 +1,195 @@
 package astrobleme;
 
 /**
+ * Decomposes a square Matrix A into a unit lower triangular matrix L, an upper
+ * triangular matrix U and a permutation P such that PA = LU. The decomposition
+ * can then be used to solve Ax = b for as many vectors b as needed.
+ *
  * @author Subhomoy Haldar
- * @version 2017.01.25
+ * @version 2017.02.10
  */
 public class LUPDecompose {
+    // The Workspace slot for the permuted constants, or the forward substitution
+    // result when the factors are given directly
+    private static final int PERMUTED = 0;
+    // Stored in packed form, as described in PackedOps
+    private final Rational[][] L;
+    private final Rational[][] U;
+    private final int[] pCompact;
+
+    /**
+     * Decomposes the given square Matrix.
+     *
+     * @param matrix The Matrix to decompose.
+     * @throws IllegalArgumentException If the Matrix is not square.
+     * @throws ArithmeticException      If the Matrix is singular.
+     */
+    public LUPDecompose(Matrix matrix) {
+        this(matrix, Checkpoint.NONE);
+    }
+
+    /**
+     * Decomposes the given square Matrix, consulting the checkpoint before
+     * every pivot step.
+     *
+     * @param matrix     The Matrix to decompose.
+     * @param checkpoint The checkpoint to consult.
+     * @throws IllegalArgumentException If the Matrix is not square.
+     * @throws ArithmeticException      If the Matrix is singular.
+     */
+    LUPDecompose(Matrix matrix, Checkpoint checkpoint) {
+        if (!matrix.isSquare()) {
+            throw new IllegalArgumentException("Only square matrices can be decomposed.");
+        }
+        final int n = matrix.getRows();
+        Rational[][] a = new Rational[n][];
+        int[] p = new int[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = matrix.array()[i].clone();
+            p[i] = i;
+        }
+        for (int k = 0; k < n; k++) {
+            checkpoint.check();
+            // Any non-zero pivot is fine since the arithmetic is exact
+            int pivot = k;
+            while (pivot < n && a[pivot][k].isZero()) {
+                pivot++;
+            }
+            if (pivot == n) {
+                throw new ArithmeticException("Matrix is singular.");
+            }
+            if (pivot != k) {
+                Rational[] row = a[pivot];
+                a[pivot] = a[k];
+                a[k] = row;
+                int index = p[pivot];
+                p[pivot] = p[k];
+                p[k] = index;
+            }
+            for (int i = k + 1; i < n; i++) {
+                Rational factor = a[i][k].divide(a[k][k]);
+                a[i][k] = factor;
+                if (factor.isZero()) {
+                    continue;
+                }
+                for (int j = k + 1; j < n; j++) {
+                    a[i][j] = a[i][j].subtract(factor.multiply(a[k][j]));
+                }
+            }
+        }
+        // Split the combined array into the packed L and U
+        L = new Rational[n][];
+        U = new Rational[n][];
+        for (int i = 0; i < n; i++) {
+            L[i] = new Rational[i + 1];
+            System.arraycopy(a[i], 0, L[i], 0, i);
+            L[i][i] = Rational.ONE;
+            U[i] = new Rational[n - i];
+            System.arraycopy(a[i], i, U[i], 0, n - i);
+        }
+        pCompact = p;
+    }
+
+    /**
+     * @return The unit lower triangular factor L.
+     */
+    public Matrix getL() {
+        return new Matrix(PackedOps.unpackLower(L), false);
+    }
+
+    /**
+     * @return The upper triangular factor U.
+     */
+    public Matrix getU() {
+        return new Matrix(PackedOps.unpackUpper(U), false);
+    }
+
+    /**
+     * @return The number of elements held by the packed factors.
+     */
+    long weight() {
+        long weight = 0;
+        for (int i = 0; i < L.length; i++) {
+            weight += L[i].length + U[i].length;
+        }
+        return weight;
+    }
+
+    /**
+     * @return The compact form of the permutation P: row i of PA is row
+     * {@code p[i]} of A.
+     */
+    public int[] getPermutation() {
+        return pCompact.clone();
+    }
+
+    /**
+     * @return The inverse of the decomposed matrix A.
+     */
+    public Matrix inverse() {
+        final int n = pCompact.length;
+        Rational[][] inverse = new Rational[n][n];
+        Rational[] e = new Rational[n];
+        Rational[] column = new Rational[n];
+        Workspace workspace = Workspace.local();
+        for (int j = 0; j < n; j++) {
+            for (int i = 0; i < n; i++) {
+                e[i] = i == j ? Rational.ONE : Rational.ZERO;
+            }
+            solve(e, column, workspace, Checkpoint.NONE);
+            for (int i = 0; i < n; i++) {
+                inverse[i][j] = column[i];
+            }
+        }
+        return new Matrix(inverse, false);
+    }
+
+    /**
+     * Solves Ax = b for the decomposed matrix A.
+     *
+     * @param b The (unpermuted) constants vector.
+     * @return The required solution vector.
+     * @throws IllegalArgumentException If the length of b does not match.
+     */
+    public Rational[] solve(Rational[] b) {
+        return solve(b, Checkpoint.NONE);
+    }
+
+    /**
+     * Solves Ax = b into the given vector, drawing all the scratch storage from the
+     * Workspace, so that nothing but the elements of x is allocated.
+     *
+     * @param b         The (unpermuted) constants vector.
+     * @param x         The vector to store the solution in; it may be b itself.
+     * @param workspace The Workspace to use, e.g. {@link Workspace#local()}.
+     * @return The vector x.
+     * @throws IllegalArgumentException If the length of b or x does not match.
+     */
+    public Rational[] solve(Rational[] b, Rational[] x, Workspace workspace) {
+        return solve(b, x, workspace, Checkpoint.NONE);
+    }
+
+    Rational[] solve(Rational[] b, Checkpoint checkpoint) {
+        return solve(b, new Rational[pCompact.length], Workspace.local(), checkpoint);
+    }
+
+    private Rational[] solve(Rational[] b, Rational[] x, Workspace workspace,
+                             Checkpoint checkpoint) {
+        final int n = pCompact.length;
+        if (b.length != n || x.length != n) {
+            throw new IllegalArgumentException("Incompatible constants vector.");
+        }
+        Rational[] permuted = workspace.vector(PERMUTED, n);
+        for (int i = 0; i < n; i++) {
+            permuted[i] = b[pCompact[i]];
+        }
+        // Both substitutions work in place
+        RationalAccumulator sum = workspace.accumulator();
+        PackedOps.forward(L, permuted, permuted, true, sum, checkpoint);
+        PackedOps.backward(U, permuted, x, sum, checkpoint);
+        return x;
+    }
+
     /**
      * Returns the solution vector from the decomposed L and U matrices (2D arrays)
      * and the <strong>permuted</strong> "constants" vector: b.
@@ -15,26 +200,65 @@ public class LUPDecompose {
      * @return The required solution vector.
      */
     public static Rational[] solve(Rational[][] L, Rational[][] U, Rational[] b) {
+        return solve(L, U, b, Checkpoint.NONE);
+    }
+
+    static Rational[] solve(Rational[][] L, Rational[][] U, Rational[] b,
+                            Checkpoint checkpoint) {
         final int n = L.length;
+        RationalBlock l = RationalBlock.of(L);
+        RationalBlock u = l == null ? null : RationalBlock.of(U);
+        if (u != null) {
+            return solve(l, u, b, checkpoint);
+        }
         Rational[] x = new Rational[n];
-        Rational[] y = new Rational[n];
+        Workspace workspace = Workspace.local();
+        Rational[] y = workspace.vector(PERMUTED, n);
+        RationalAccumulator sum = workspace.accumulator();
         // Forward substitution
         for (int i = 0; i < n; i++) {
-            Rational sum = Rational.ZERO;
+            checkpoint.check();
+            sum.reset().add(b[i]);
             for (int j = 0; j < i; j++) {
-                sum = L[i][j].multiply(y[j]).add(sum);
+                sum.subtractProduct(L[i][j], y[j]);
             }
-            y[i] = b[i].subtract(sum);
+            y[i] = sum.toRational();
         }
         // Backward substitution
         for (int i = n - 1; i >= 0; i--) {
-            Rational sum = Rational.ZERO;
+            checkpoint.check();
+            sum.reset().add(y[i]);
             for (int j = i + 1; j < n; j++) {
-                sum = U[i][j].multiply(x[j]).add(sum);
+                sum.subtractProduct(U[i][j], x[j]);
             }
-            x[i] = y[i].subtract(sum).divide(U[i][i]);
+            x[i] = sum.toRational().divide(U[i][i]);
         }
 
         return x;
     }
+
+    /**
+     * Solves LUx = b with the factors held as longs. The partial solutions are
+     * kept in blocks as well (a column each), so that every sum is a
+     * {@link RationalBlock#dot(int, RationalBlock, int, int, int)}.
+     */
+    private static Rational[] solve(RationalBlock L, RationalBlock U, Rational[] b,
+                                    Checkpoint checkpoint) {
+        final int n = L.rows;
+        RationalBlock y = new RationalBlock(n, 1);
+        // Forward substitution
+        for (int i = 0; i < n; i++) {
+            checkpoint.check();
+            y.set(i, b[i].subtract(L.dot(i, y, 0, 0, i)));
+        }
+        // Backward substitution
+        Rational[] x = new Rational[n];
+        RationalBlock xb = new RationalBlock(n, 1);
+        for (int i = n - 1; i >= 0; i--) {
+            checkpoint.check();
+            x[i] = y.get(i).subtract(U.dot(i, xb, 0, i + 1, n)).divide(U.get(i * n + i));
+            xb.set(i, x[i]);
+        }
+        return x;
+    }
 }
@@ -0,0 +1,204 @@
+package astrobleme;
+
+/**
+ * The kernels for Matrices in the flat layouts (see {@link MatrixLayout}). Each one
+ * picks the loop order in which the operands are read contiguously: rows of a
+ * row-major array, and columns of a column-major one.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+class LayoutOps {
+    /**
+     * Multiplies two compatible matrices, at least one of which is flat. Depending
+     * on the layouts of the factors, the product is formed as
+     * <ul>
+     * <li>rows times columns: dot products of a row of x and a column of y;</li>
+     * <li>rows times rows: each row of the product is a combination of the rows
+     * of y, weighted by the elements of a row of x;</li>
+     * <li>columns times columns: each column of the product is a combination of
+     * the columns of x, weighted by the elements of a column of y.</li>
+     * </ul>
+     * A column-major x with a row-major y is converted to the second case, which
+     * costs a single pass over x. The product is column-major if both factors
+     * are, and row-major otherwise.
+     * <p>
+     * Small entries are first tried as longs in the {@link RationalBlock} each
+     * Matrix keeps, which is row-major. A pair of column-major factors holds the transposes of the
+     * factors in row-major order, so their transposed product is formed instead,
+     * and that is the column-major product.
+     *
+     * @param checkpoint The checkpoint to consult after every row (or column) of
+     *                   the product.
+     */
+    static Matrix multiply(Matrix x, Matrix y, Checkpoint checkpoint) {
+        boolean yRows = y.getLayout().isRowMajor();
+        if (!x.getLayout().isRowMajor() && !yRows) {
+            RationalBlock yt = y.transpose().block();
+            RationalBlock xt = yt == null ? null : x.transpose().block();
+            if (xt != null) {
+                RationalBlock c = yt.multiply(xt, checkpoint);
+                Matrix product = new Matrix(c.toFlatArray(), x.getRows(), y.getCols(),
+                        MatrixLayout.FLAT_COLUMN_MAJOR);
+                product.transpose().keep(c);
+                return product;
+            }
+        } else {
+            RationalBlock xb = x.block();
+            RationalBlock yb = xb == null ? null : y.block();
+            if (yb != null) {
+                RationalBlock c = xb.multiply(yb, checkpoint);
+                return new Matrix(c.toFlatArray(), x.getRows(), y.getCols(),
+                        MatrixLayout.FLAT_ROW_MAJOR).keep(c);
+            }
+        }
+        if (!x.getLayout().isRowMajor()) {
+            if (!yRows) {
+                return columnsTimesColumns(x, y, checkpoint);
+            }
+            x = x.toLayout(MatrixLayout.FLAT_ROW_MAJOR);
+        }
+        return yRows ? rowsTimesRows(x, y, checkpoint) : rowsTimesColumns(x, y, checkpoint);
+    }
+
+    private static Matrix rowsTimesColumns(Matrix x, Matrix y, Checkpoint checkpoint) {
+        int m = x.getRows();
+        int l = x.getCols();
+        int n = y.getCols();
+        Rational[][] xa = x.flat() == null ? x.array() : null;
+        Rational[] ys = y.flat();
+        Rational[] c = new Rational[m * n];
+        RationalAccumulator sum = Workspace.local().accumulator();
+        for (int i = 0; i < m; i++) {
+            checkpoint.check();
+            Rational[] row = xa != null ? xa[i] : x.flat();
+            int offset = xa != null ? 0 : i * l;
+            for (int j = 0; j < n; j++) {
+                sum.reset();
+                int column = j * l;
+                for (int k = 0; k < l; k++) {
+                    sum.addProduct(row[offset + k], ys[column + k]);
+                }
+                c[i * n + j] = sum.toRational();
+            }
+        }
+        return new Matrix(c, m, n, MatrixLayout.FLAT_ROW_MAJOR);
+    }
+
+    private static Matrix rowsTimesRows(Matrix x, Matrix y, Checkpoint checkpoint) {
+        int m = x.getRows();
+        int l = x.getCols();
+        int n = y.getCols();
+        Rational[][] xa = x.flat() == null ? x.array() : null;
+        Rational[][] ya = y.flat() == null ? y.array() : null;
+        Rational[] c = new Rational[m * n];
+        RationalAccumulator[] sums = accumulators(n);
+        for (int i = 0; i < m; i++) {
+            checkpoint.check();
+            Rational[] row = xa != null ? xa[i] : x.flat();
+            int offset = xa != null ? 0 : i * l;
+            for (int k = 0; k < l; k++) {
+                Rational xik = row[offset + k];
+                if (xik.isZero()) {
+                    continue;
+                }
+                Rational[] yRow = ya != null ? ya[k] : y.flat();
+                int yOffset = ya != null ? 0 : k * n;
+                for (int j = 0; j < n; j++) {
+                    sums[j].addProduct(xik, yRow[yOffset + j]);
+                }
+            }
+            for (int j = 0; j < n; j++) {
+                c[i * n + j] = sums[j].toRational();
+                sums[j].reset();
+            }
+        }
+        return new Matrix(c, m, n, MatrixLayout.FLAT_ROW_MAJOR);
+    }
+
+    private static Matrix columnsTimesColumns(Matrix x, Matrix y, Checkpoint checkpoint) {
+        int m = x.getRows();
+        int l = x.getCols();
+        int n = y.getCols();
+        Rational[] xs = x.flat();
+        Rational[] ys = y.flat();
+        Rational[] c = new Rational[m * n];
+        RationalAccumulator[] sums = accumulators(m);
+        for (int j = 0; j < n; j++) {
+            checkpoint.check();
+            for (int k = 0; k < l; k++) {
+                Rational ykj = ys[j * l + k];
+                if (ykj.isZero()) {
+                    continue;
+                }
+                int column = k * m;
+                for (int i = 0; i < m; i++) {
+                    sums[i].addProduct(xs[column + i], ykj);
+                }
+            }
+            for (int i = 0; i < m; i++) {
+                c[j * m + i] = sums[i].toRational();
+                sums[i].reset();
+            }
+        }
+        return new Matrix(c, m, n, MatrixLayout.FLAT_COLUMN_MAJOR);
+    }
+
+    private static RationalAccumulator[] accumulators(int length) {
+        RationalAccumulator[] sums = new RationalAccumulator[length];
+        for (int i = 0; i < length; i++) {
+            sums[i] = new RationalAccumulator();
+        }
+        return sums;
+    }
+
+    /**
+     * Permutes the rows of a flat Matrix into a new one with the same layout: a
+     * row-major array is copied a row at a time, and a column-major one is
+     * gathered within each column.
+     */
+    static Matrix permuteRows(Matrix x, int[] pCompact) {
+        int m = x.getRows();
+        int n = x.getCols();
+        Rational[] xs = x.flat();
+        Rational[] data = new Rational[xs.length];
+        if (x.getLayout().isRowMajor()) {
+            for (int i = 0; i < m; i++) {
+                System.arraycopy(xs, pCompact[i] * n, data, i * n, n);
+            }
+        } else {
+            for (int j = 0; j < n; j++) {
+                int column = j * m;
+                for (int i = 0; i < m; i++) {
+                    data[column + i] = xs[column + pCompact[i]];
+                }
+            }
+        }
+        return new Matrix(data, m, n, x.getLayout());
+    }
+
+    /**
+     * Permutes the columns of a flat Matrix into a new one with the same layout: a
+     * column-major array is copied a column at a time, and a row-major one is
+     * gathered within each row.
+     */
+    static Matrix permuteColumns(Matrix x, int[] pCompact) {
+        int m = x.getRows();
+        int n = x.getCols();
+        Rational[] xs = x.flat();
+        Rational[] data = new Rational[xs.length];
+        if (x.getLayout().isRowMajor()) {
+            for (int i = 0; i < m; i++) {
+                int row = i * n;
+                for (int j = 0; j < n; j++) {
+                    data[row + j] = xs[row + pCompact[j]];
+                }
+            }
+        } else {
+            for (int j = 0; j < n; j++) {
+                System.arraycopy(xs, pCompact[j] * m, data, j * m, m);
+            }
+        }
+        return new Matrix(data, m, n, x.getLayout());
+    }
+}
@@ -0,0 +1,93 @@
+package astrobleme;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Splits the bytes read from a channel into lines, using a buffer of bounded size.
+ * Only ASCII text is expected. The line terminators ("\n" or "\r\n") are dropped.
+ * The channel must be in blocking mode, so that every read returns some bytes or
+ * the end of the stream.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+final class LineScanner {
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final StringBuilder line = new StringBuilder();
+    private long remaining;
+    private long position = 0;
+
+    /**
+     * @param channel The channel to read from.
+     * @param limit   The maximum number of bytes to read from the channel.
+     */
+    LineScanner(final ReadableByteChannel channel, final long limit) {
+        this.channel = channel;
+        remaining = limit;
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.flip();
+    }
+
+    /**
+     * @return The number of bytes that make up the lines returned so far.
+     */
+    long position() {
+        return position;
+    }
+
+    /**
+     * @return The next line, or {@code null} if there are no more.
+     * @throws IOException If reading from the channel fails.
+     */
+    String nextLine() throws IOException {
+        line.setLength(0);
+        boolean any = false;
+        while (true) {
+            if (!buffer.hasRemaining() && !fill()) {
+                return any ? finish() : null;
+            }
+            any = true;
+            byte b = buffer.get();
+            position++;
+            if (b == '\n') {
+                return finish();
+            }
+            line.append((char) (b & 0xFF));
+        }
+    }
+
+    private String finish() {
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        return line.toString();
+    }
+
+    private boolean fill() throws IOException {
+        if (remaining <= 0) {
+            return false;
+        }
+        buffer.clear();
+        if (remaining < buffer.capacity()) {
+            buffer.limit((int) remaining);
+        }
+        int read = channel.read(buffer);
+        if (read == 0) {
+            // Only a non-blocking channel returns without any bytes
+            throw new IOException("No bytes were available; the channel must be blocking.");
+        }
+        buffer.flip();
+        if (read < 0) {
+            remaining = 0;
+            return false;
+        }
+        remaining -= read;
+        return true;
+    }
+}
@@ -1,6 +1,7 @@
 package astrobleme;
 
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.StringJoiner;
 
 /**
@@ -8,12 +9,27 @@ import java.util.StringJoiner;
  * around a 2D matrix. The matrix is zero-indexed for simplicity of implementation,
  * i.e. the second element of the third row is available at (2, 1), NOT (3, 2) as
  * one might expect. Be careful about this feature.
+ * <p>
+ * Matrices are immutable and can be shared freely between threads. Properties
+ * that are expensive to compute (the transpose, the hash code, the structural
+ * checks and the elements as longs) are cached on first use without locking:
+ * each is read exactly once per call and refers to an immutable object, so at
+ * worst a race computes the same value twice.
+ * <p>
+ * The elements are normally held as an array of rows, but a Matrix can also be
+ * stored in a single row-major or column-major array (see {@link MatrixLayout}).
+ * Element access, transposition, products and permutations work on every layout
+ * directly, picking the loop order that traverses the operands contiguously. The
+ * other operations work on a row view, which a flat Matrix creates in one pass on
+ * first use and then keeps.
  *
  * @author Subhomoy Haldar
- * @version 2017.01.24
+ * @version 2017.02.10
  */
 public class Matrix {
-    private final Rational[][] a; // named for simplicity
+    private final Rational[][] a; // named for simplicity; null if flat
+    private final Rational[] flat; // null unless flat
+    private final MatrixLayout layout;
     private final int rows;
     private final int cols;
 
@@ -27,6 +43,8 @@ public class Matrix {
         this.rows = rows;
         this.cols = cols;
         a = new Rational[rows][cols];
+        flat = null;
+        layout = MatrixLayout.JAGGED_ROW_MAJOR;
     }
 
     /**
@@ -56,7 +74,7 @@ public class Matrix {
      * @param data     The data to construct the Matrix from.
      * @param deepCopy Whether we need an independent copy.
      */
-    private Matrix(final Rational[][] data, boolean deepCopy) {
+    Matrix(final Rational[][] data, boolean deepCopy) {
         rows = data.length;
         cols = data[0].length;
         if (deepCopy) {
@@ -67,6 +85,27 @@ public class Matrix {
         } else {
             a = data;
         }
+        flat = null;
+        layout = MatrixLayout.JAGGED_ROW_MAJOR;
+    }
+
+    /**
+     * Wraps the given flat array, without copying it.
+     *
+     * @param data   The elements, in the order of the layout.
+     * @param rows   The number of rows.
+     * @param cols   The number of columns.
+     * @param layout The layout of the data, which must be flat.
+     */
+    Matrix(final Rational[] data, final int rows, final int cols, final MatrixLayout layout) {
+        if (!layout.isFlat() || data.length != rows * cols) {
+            throw new IllegalArgumentException("Incompatible flat array.");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.layout = layout;
+        a = null;
+        flat = data;
     }
 
     /**
@@ -82,7 +121,173 @@ public class Matrix {
         if (j < 0 || j >= cols) {
             throw new IllegalArgumentException("Invalid column index; must be in [0, cols)");
         }
-        return a[i][j];
+        return element(i, j);
+    }
+
+    /**
+     * @return The element at (i, j), without checking the indices.
+     */
+    Rational element(int i, int j) {
+        return a != null ? a[i][j] : flat[index(i, j)];
+    }
+
+    /**
+     * @return The position of (i, j) in the flat array.
+     */
+    int index(int i, int j) {
+        return layout == MatrixLayout.FLAT_ROW_MAJOR ? i * cols + j : j * rows + i;
+    }
+
+    /**
+     * Provides direct access to the backing array for the other classes in this
+     * package. The array must <strong>not</strong> be modified. For the flat
+     * layouts, this is the cached row view.
+     *
+     * @return The backing array of this Matrix.
+     */
+    Rational[][] array() {
+        return a != null ? a : rowView().a;
+    }
+
+    /**
+     * Provides direct access to the backing flat array for the other classes in
+     * this package. The array must <strong>not</strong> be modified.
+     *
+     * @return The flat array, or {@code null} for the jagged layout.
+     */
+    Rational[] flat() {
+        return flat;
+    }
+
+    /**
+     * @return The way the elements of this Matrix are stored.
+     */
+    public MatrixLayout getLayout() {
+        return layout;
+    }
+
+    private Matrix rowView;
+
+    private Matrix rowView() {
+        Matrix result = rowView;
+        return result == null ? rowView = convert(MatrixLayout.JAGGED_ROW_MAJOR) : result;
+    }
+
+    // The elements as longs, RationalBlock.NONE if they do not fit, or null until
+    // first needed; volatile, since a block is not immutable by construction
+    private volatile RationalBlock block;
+
+    /**
+     * @return The elements in a RationalBlock, converted on first use and then
+     * kept, or {@code null} if they do not all fit in longs.
+     */
+    RationalBlock block() {
+        RationalBlock result = block;
+        if (result == null) {
+            result = RationalBlock.of(this);
+            block = result = result == null ? RationalBlock.NONE : result;
+        }
+        return result == RationalBlock.NONE ? null : result;
+    }
+
+    /**
+     * @return A (jagged) Matrix of the elements of c, which keeps c as its block
+     * unless some of it has spilled.
+     */
+    static Matrix of(RationalBlock c) {
+        return new Matrix(c.toArray(), false).keep(c);
+    }
+
+    /**
+     * Keeps the given block, which must hold the elements of this Matrix in
+     * row-major order, unless some of it has spilled.
+     *
+     * @return This Matrix.
+     */
+    Matrix keep(RationalBlock c) {
+        if (!c.hasSpilled()) {
+            block = c;
+        }
+        return this;
+    }
+
+    /**
+     * Returns a Matrix equal to this one, with the elements stored in the given
+     * layout. The conversion copies the elements in a single pass, in blocks so
+     * that both the reads and the writes stay in the cache when the orders differ.
+     *
+     * @param target The required layout.
+     * @return This Matrix if it already has the layout, or a converted copy.
+     */
+    public Matrix toLayout(MatrixLayout target) {
+        if (target == layout) {
+            return this;
+        }
+        return target == MatrixLayout.JAGGED_ROW_MAJOR ? rowView() : convert(target);
+    }
+
+    private static final int BLOCK = 32;
+
+    private Matrix convert(MatrixLayout target) {
+        if (target.isFlat()) {
+            Rational[] data = new Rational[rows * cols];
+            if (target == MatrixLayout.FLAT_ROW_MAJOR && a != null) {
+                for (int i = 0; i < rows; i++) {
+                    System.arraycopy(a[i], 0, data, i * cols, cols);
+                }
+            } else if (target == MatrixLayout.FLAT_ROW_MAJOR) {
+                for (int ib = 0; ib < rows; ib += BLOCK) {
+                    for (int jb = 0; jb < cols; jb += BLOCK) {
+                        for (int j = jb; j < Math.min(jb + BLOCK, cols); j++) {
+                            for (int i = ib; i < Math.min(ib + BLOCK, rows); i++) {
+                                data[i * cols + j] = flat[j * rows + i];
+                            }
+                        }
+                    }
+                }
+            } else {
+                for (int ib = 0; ib < rows; ib += BLOCK) {
+                    for (int jb = 0; jb < cols; jb += BLOCK) {
+                        for (int i = ib; i < Math.min(ib + BLOCK, rows); i++) {
+                            for (int j = jb; j < Math.min(jb + BLOCK, cols); j++) {
+                                data[j * rows + i] = element(i, j);
+                            }
+                        }
+                    }
+                }
+            }
+            return new Matrix(data, rows, cols, target);
+        }
+        Rational[][] data = new Rational[rows][cols];
+        if (layout == MatrixLayout.FLAT_ROW_MAJOR) {
+            for (int i = 0; i < rows; i++) {
+                System.arraycopy(flat, i * cols, data[i], 0, cols);
+            }
+        } else {
+            for (int ib = 0; ib < rows; ib += BLOCK) {
+                for (int jb = 0; jb < cols; jb += BLOCK) {
+                    for (int j = jb; j < Math.min(jb + BLOCK, cols); j++) {
+                        for (int i = ib; i < Math.min(ib + BLOCK, rows); i++) {
+                            data[i][j] = flat[j * rows + i];
+                        }
+                    }
+                }
+            }
+        }
+        return new Matrix(data, false);
+    }
+
+    /**
+     * @return The elements of this Matrix, rounded to the nearest doubles.
+     */
+    public double[][] toDoubleArray() {
+        double[][] data = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                data[i][j] = element(i, j).doubleValue();
+            }
+        }
+        return data;
     }
 
     /**
@@ -105,17 +310,30 @@ public class Matrix {
      * @return {@code true} if the Matrix is a square matrix.
      */
     public boolean isSquare() {
-        return isSquare == null ? isSquare = rows == cols : isSquare;
+        Boolean result = isSquare;
+        return result == null ? isSquare = rows == cols : result;
     }
 
-    private Matrix transpose;
+    // Volatile, so that the link back from a transpose is visible to every thread
+    // that sees the transpose itself
+    private volatile Matrix transpose;
 
     /**
+     * The transpose of a flat Matrix shares its array, read in the opposite
+     * order, so it costs nothing to create.
+     *
      * @return The transpose of the Matrix, by interchanging the rows and columns.
      */
     public Matrix transpose() {
-        if (transpose != null) {
-            return transpose;
+        Matrix result = transpose;
+        if (result != null) {
+            return result;
+        }
+        if (a == null) {
+            result = new Matrix(flat, cols, rows, layout.transposed());
+            result.transpose = this;
+            transpose = result;
+            return result;
         }
         Rational[][] t = new Rational[cols][rows];
         for (int i = 0; i < rows; i++) {
@@ -123,9 +341,11 @@ public class Matrix {
                 t[j][i] = a[i][j];
             }
         }
-        transpose = new Matrix(t);
-        transpose.transpose = this;
-        return transpose;
+        // Link back before publishing; the volatile write orders the two
+        result = new Matrix(t, false);
+        result.transpose = this;
+        transpose = result;
+        return result;
     }
 
     /**
@@ -134,10 +354,10 @@ public class Matrix {
     @Override
     public String toString() {
         StringJoiner rowJoiner = new StringJoiner("\n");
-        for (Rational[] row : a) {
+        for (int i = 0; i < rows; i++) {
             StringJoiner elementJoiner = new StringJoiner(", ", "[", "]");
-            for (Rational element : row) {
-                elementJoiner.add(String.valueOf(element));
+            for (int j = 0; j < cols; j++) {
+                elementJoiner.add(String.valueOf(element(i, j)));
             }
             rowJoiner.add(elementJoiner.toString());
         }
@@ -146,13 +366,59 @@ public class Matrix {
 
     /**
      * @param other The other Matrix to check against.
-     * @return {@code true} if both the matrices are same, i.e. their elements are equal.
+     * @return {@code true} if both the matrices are same, i.e. their elements are
+     * equal, whatever their layouts.
      */
     @Override
     public boolean equals(Object other) {
         if (!(other instanceof Matrix)) return false;
         Matrix m = (Matrix) other;
-        return rows == m.rows && cols == m.cols && Arrays.deepEquals(a, m.a);
+        if (rows != m.rows || cols != m.cols) {
+            return false;
+        }
+        if (layout == m.layout) {
+            return a != null ? Arrays.deepEquals(a, m.a) : Arrays.equals(flat, m.flat);
+        }
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (!Objects.equals(element(i, j), m.element(i, j))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private Integer hashCode = null;
+
+    /**
+     * The hash is computed from the contents on first use and cached from then on.
+     *
+     * @return The hash code of this Matrix, consistent with {@link #equals(Object)}.
+     */
+    @Override
+    public int hashCode() {
+        Integer result = hashCode;
+        if (result == null) {
+            int contents = a != null ? Arrays.deepHashCode(a) : rowHash();
+            result = hashCode = 31 * (31 * rows + cols) + contents;
+        }
+        return result;
+    }
+
+    /**
+     * @return What {@link Arrays#deepHashCode(Object[])} would give for the rows.
+     */
+    private int rowHash() {
+        int hash = 1;
+        for (int i = 0; i < rows; i++) {
+            int rowHash = 1;
+            for (int j = 0; j < cols; j++) {
+                rowHash = 31 * rowHash + Objects.hashCode(element(i, j));
+            }
+            hash = 31 * hash + rowHash;
+        }
+        return hash;
     }
 
     /**
@@ -168,8 +434,7 @@ public class Matrix {
         }
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
-                Rational eps = a[i][j].subtract(m.a[i][j]).abs();
-                if (eps.compareTo(tolerance) > 0) {
+                if (!element(i, j).isApproximately(m.element(i, j), tolerance)) {
                     return false;
                 }
             }
@@ -177,7 +442,8 @@ public class Matrix {
         return true;
     }
 
-    // Lazy initialization for certain properties.
+    // Lazy initialization for certain properties. Each getter reads its field
+    // into a local exactly once, since two racy reads may see different values.
 
     private Boolean isLowerTriangular = null;
     private Boolean isUpperTriangular = null;
@@ -190,54 +456,60 @@ public class Matrix {
      * @return {@code true} if get(i, j) = 0 for i < j.
      */
     public boolean isLowerTriangular() {
-        return isLowerTriangular == null
+        Boolean result = isLowerTriangular;
+        return result == null
                 ? isLowerTriangular = MatrixProperties.isLowerTriangular(this)
-                : isLowerTriangular;
+                : result;
     }
 
     /**
      * @return {@code true} if get(i, j) = 0 for j < i.
      */
     public boolean isUpperTriangular() {
-        return isUpperTriangular == null
+        Boolean result = isUpperTriangular;
+        return result == null
                 ? isUpperTriangular = MatrixProperties.isUpperTriangular(this)
-                : isUpperTriangular;
+                : result;
     }
 
     /**
      * @return {@code true} if get(i, j) = 0 for i &neq; j.
      */
     public boolean isDiagonal() {
-        return isDiagonal == null
+        Boolean result = isDiagonal;
+        return result == null
                 ? isDiagonal = isLowerTriangular() && isUpperTriangular()
-                : isDiagonal;
+                : result;
     }
 
     /**
      * @return {@code true} if this is an identity matrix.
      */
     public boolean isIdentity() {
-        return isIdentity == null
+        Boolean result = isIdentity;
+        return result == null
                 ? isIdentity = MatrixProperties.isIdentity(this)
-                : isIdentity;
+                : result;
     }
 
     /**
      * @return {@code true} of transpose of this is equal to it.
      */
     public boolean isSymmetric() {
-        return isSymmetric == null
-                ? isSymmetric = this.equals(transpose())
-                : isSymmetric;
+        Boolean result = isSymmetric;
+        return result == null
+                ? isSymmetric = MatrixProperties.isSymmetric(this)
+                : result;
     }
 
     /**
      * @return {@code true} if the Matrix is a Permutation Matrix.
      */
     public boolean isPermutation() {
-        return isPermutation == null
+        Boolean result = isPermutation;
+        return result == null
                 ? isPermutation = MatrixProperties.isPermutation(this)
-                : isPermutation;
+                : result;
     }
 
     /**
@@ -248,7 +520,12 @@ public class Matrix {
         if (rows != m.rows || cols != m.cols) {
             throw new IllegalArgumentException("Incompatible matrices.");
         }
-        return new Matrix(MatrixOps.add(a, m.a), false);
+        RationalBlock x = block();
+        RationalBlock y = x == null ? null : m.block();
+        if (y != null) {
+            return of(x.add(y, false));
+        }
+        return new Matrix(MatrixOps.add(array(), m.array()), false);
     }
 
     /**
@@ -259,7 +536,12 @@ public class Matrix {
         if (rows != m.rows || cols != m.cols) {
             throw new IllegalArgumentException("Incompatible matrices.");
         }
-        return new Matrix(MatrixOps.subtract(a, m.a), false);
+        RationalBlock x = block();
+        RationalBlock y = x == null ? null : m.block();
+        if (y != null) {
+            return of(x.add(y, true));
+        }
+        return new Matrix(MatrixOps.subtract(array(), m.array()), false);
     }
 
     /**
@@ -267,7 +549,7 @@ public class Matrix {
      * @return The scaled matrix.
      */
     public Matrix multiply(Rational scalar) {
-        return new Matrix(MatrixOps.multiply(a, scalar), false);
+        return new Matrix(MatrixOps.multiply(array(), scalar), false);
     }
 
     /**
@@ -276,10 +558,243 @@ public class Matrix {
      * @throws IllegalArgumentException If the matrices are not compatible.
      */
     public Matrix multiply(Matrix m) {
+        return multiply(m, Checkpoint.NONE);
+    }
+
+    /**
+     * @param m          The matrix to multiply.
+     * @param checkpoint The checkpoint to consult after every row of the product.
+     * @return The product of this matrix and the given matrix.
+     * @throws IllegalArgumentException If the matrices are not compatible.
+     */
+    Matrix multiply(Matrix m, Checkpoint checkpoint) {
         if (cols != m.rows) {
             throw new IllegalArgumentException("Incompatible matrices.");
         }
-        return new Matrix(MatrixOps.multiply(a, m.a), false);
+        // Structured operands need far less work
+        if (isDiagonal()) {
+            Rational[] d = PackedOps.packDiagonal(array());
+            return new Matrix(PackedOps.multiply(d, m.array(), checkpoint), false);
+        }
+        if (m.isDiagonal()) {
+            Rational[] d = PackedOps.packDiagonal(m.array());
+            return new Matrix(PackedOps.multiply(array(), d, checkpoint), false);
+        }
+        if (isLowerTriangular() && m.isLowerTriangular()) {
+            Rational[][] l = PackedOps.multiplyLower(
+                    PackedOps.packLower(array()), PackedOps.packLower(m.array()), checkpoint);
+            Matrix product = new Matrix(PackedOps.unpackLower(l), false);
+            product.isLowerTriangular = true;
+            return product;
+        }
+        if (isUpperTriangular() && m.isUpperTriangular()) {
+            Rational[][] u = PackedOps.multiplyUpper(
+                    PackedOps.packUpper(array()), PackedOps.packUpper(m.array()), checkpoint);
+            Matrix product = new Matrix(PackedOps.unpackUpper(u), false);
+            product.isUpperTriangular = true;
+            return product;
+        }
+        // Flat operands get the loop order that suits their layouts
+        if (a == null || m.a == null) {
+            return LayoutOps.multiply(this, m, checkpoint);
+        }
+        // Small entries can be multiplied as longs
+        RationalBlock x = block();
+        RationalBlock y = x == null ? null : m.block();
+        if (y != null) {
+            return of(x.multiply(y, checkpoint));
+        }
+        // A Matrix times its own transpose is symmetric, so half of it is enough
+        Matrix t = transpose;
+        if (m == t || m.transpose == this) {
+            Rational[][] s = PackedOps.multiplyTransposed(array(), checkpoint);
+            Matrix product = new Matrix(PackedOps.unpackSymmetric(s), false);
+            product.isSymmetric = true;
+            return product;
+        }
+        if (isSymmetric()) {
+            Rational[][] s = PackedOps.packUpper(array());
+            return new Matrix(PackedOps.multiplySymmetric(s, m.array(), checkpoint), false);
+        }
+        return new Matrix(MatrixOps.multiply(array(), m.array(), checkpoint), false);
+    }
+
+    /**
+     * Rearranges the rows of this Matrix. The result has the same layout.
+     *
+     * @param pCompact The compact permutation: row i of the result is row
+     *                 {@code pCompact[i]} of this Matrix.
+     * @return The Matrix with the rows permuted.
+     * @throws IllegalArgumentException If the permutation has the wrong length or
+     *                                  refers to rows that do not exist.
+     */
+    public Matrix permuteRows(int[] pCompact) {
+        checkPermutation(pCompact, rows);
+        if (a != null) {
+            return new Matrix(MatrixOps.permuteRows(a, pCompact), false);
+        }
+        return LayoutOps.permuteRows(this, pCompact);
+    }
+
+    /**
+     * Rearranges the columns of this Matrix. The result has the same layout.
+     *
+     * @param pCompact The compact permutation: column j of the result is column
+     *                 {@code pCompact[j]} of this Matrix.
+     * @return The Matrix with the columns permuted.
+     * @throws IllegalArgumentException If the permutation has the wrong length or
+     *                                  refers to columns that do not exist.
+     */
+    public Matrix permuteColumns(int[] pCompact) {
+        checkPermutation(pCompact, cols);
+        if (a != null) {
+            return new Matrix(MatrixOps.permuteColumns(a, pCompact), false);
+        }
+        return LayoutOps.permuteColumns(this, pCompact);
+    }
+
+    private static void checkPermutation(int[] pCompact, int length) {
+        if (pCompact.length != length) {
+            throw new IllegalArgumentException("The permutation must have " + length + " entries.");
+        }
+        boolean[] seen = new boolean[length];
+        for (int index : pCompact) {
+            if (index < 0 || index >= length || seen[index]) {
+                throw new IllegalArgumentException("Invalid permutation.");
+            }
+            seen[index] = true;
+        }
+    }
+
+    /**
+     * @return The inverse of this Matrix.
+     * @throws IllegalArgumentException If the Matrix is not square.
+     * @throws ArithmeticException      If the Matrix is singular.
+     */
+    public Matrix inverse() {
+        return new LUPDecompose(this).inverse();
+    }
+
+    /**
+     * Raises this square Matrix to the given power using repeated squaring. The
+     * identity, diagonal and permutation matrices are handled directly, without
+     * any matrix products.
+     *
+     * @param exponent The required power. Negative powers are powers of the inverse.
+     * @return This Matrix raised to the given power.
+     * @throws IllegalArgumentException If the Matrix is not square.
+     * @throws ArithmeticException      If a negative power of a singular Matrix is
+     *                                  required, or the result is too large.
+     */
+    public Matrix pow(long exponent) {
+        if (!isSquare()) {
+            throw new IllegalArgumentException("Only square matrices can be raised to a power.");
+        }
+        if (exponent < 0) {
+            Matrix inverse = inverse();
+            if (exponent == Long.MIN_VALUE) {
+                return inverse.pow(Long.MAX_VALUE).multiply(inverse);
+            }
+            return inverse.pow(-exponent);
+        }
+        if (exponent == 0) {
+            return identity(rows);
+        }
+        if (exponent == 1 || isIdentity()) {
+            return this;
+        }
+        if (isDiagonal()) {
+            Rational[][] p = new Rational[rows][rows];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < rows; j++) {
+                    p[i][j] = i == j ? pow(element(i, i), exponent) : Rational.ZERO;
+                }
+            }
+            return new Matrix(p, false);
+        }
+        if (isPermutation()) {
+            return permutationPow(exponent);
+        }
+        return new Matrix(MatrixOps.pow(array(), exponent), false);
+    }
+
+    private static Rational pow(Rational r, long exponent) {
+        if (r.isZero() || r.isOne()) {
+            return r;
+        }
+        if (r.is(-1)) {
+            return (exponent & 1) == 0 ? Rational.ONE : r;
+        }
+        if (exponent > Integer.MAX_VALUE) {
+            throw new ArithmeticException("Result is too large.");
+        }
+        return r.pow((int) exponent);
+    }
+
+    /**
+     * Row i of this permutation Matrix has its one at column p(i), so row i of the
+     * power has it at p^k(i). This is found by rotating each cycle of p.
+     */
+    private Matrix permutationPow(long exponent) {
+        int[] p = MatrixOps.compactify(array());
+        int[] q = new int[rows];
+        boolean[] visited = new boolean[rows];
+        int[] cycle = new int[rows];
+        for (int start = 0; start < rows; start++) {
+            if (visited[start]) {
+                continue;
+            }
+            int length = 0;
+            for (int i = start; !visited[i]; i = p[i]) {
+                visited[i] = true;
+                cycle[length++] = i;
+            }
+            int shift = (int) (exponent % length);
+            for (int i = 0; i < length; i++) {
+                q[cycle[i]] = cycle[(i + shift) % length];
+            }
+        }
+        Rational[][] power = new Rational[rows][rows];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < rows; j++) {
+                power[i][j] = q[i] == j ? Rational.ONE : Rational.ZERO;
+            }
+        }
+        return new Matrix(power, false);
+    }
+
+    /**
+     * Evaluates the polynomial with the given coefficients at this square Matrix,
+     * i.e. c[0] I + c[1] A + c[2] A^2 + ... The Paterson-Stockmeyer scheme is used
+     * to keep the number of matrix products down to about twice the square root of
+     * the degree. Diagonal matrices are evaluated element by element.
+     *
+     * @param coefficients The coefficients, starting from the constant term.
+     * @return The value of the polynomial.
+     * @throws IllegalArgumentException If the Matrix is not square or there are no
+     *                                  coefficients.
+     */
+    public Matrix polynomial(Rational... coefficients) {
+        if (!isSquare()) {
+            throw new IllegalArgumentException("Polynomials need a square matrix.");
+        }
+        if (coefficients.length == 0) {
+            throw new IllegalArgumentException("At least one coefficient is required.");
+        }
+        if (isDiagonal()) {
+            Rational[][] p = new Rational[rows][rows];
+            for (int i = 0; i < rows; i++) {
+                Rational value = Rational.ZERO;
+                for (int k = coefficients.length - 1; k >= 0; k--) {
+                    value = value.multiply(element(i, i)).add(coefficients[k]);
+                }
+                for (int j = 0; j < rows; j++) {
+                    p[i][j] = i == j ? value : Rational.ZERO;
+                }
+            }
+            return new Matrix(p, false);
+        }
+        return new Matrix(MatrixOps.polynomial(array(), coefficients), false);
     }
 
     /**
@@ -0,0 +1,226 @@
+package astrobleme;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * An opt-in, bounded cache for the results of expensive Matrix operations. The
+ * operands are compared by content (using {@link Matrix#hashCode()} and
+ * {@link Matrix#equals(Object)}), so a repeated request costs a lookup instead of
+ * a recomputation even if it arrives with a fresh but equal Matrix.
+ * <p>
+ * The cache is bounded by the total number of elements held by the cached
+ * results and by the operands that their keys keep alive. When a new result
+ * pushes it over its capacity, the least recently used results are evicted. All
+ * methods are safe for use by multiple threads; the computations themselves
+ * happen outside the lock.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class MatrixCache {
+    private final long capacity;
+    private final LinkedHashMap<Key, Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param capacity The maximum total number of elements of all cached results
+     *                 and their operands.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public MatrixCache(final long capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param a The multiplicand.
+     * @param b The multiplier.
+     * @return The (possibly cached) product of the two matrices.
+     */
+    public Matrix multiply(Matrix a, Matrix b) {
+        return get(new Key(Operation.MULTIPLY, a, b), () -> a.multiply(b),
+                MatrixCache::weight);
+    }
+
+    /**
+     * @param a The matrix to transpose.
+     * @return The (possibly cached) transpose.
+     */
+    public Matrix transpose(Matrix a) {
+        return get(new Key(Operation.TRANSPOSE, a), a::transpose, MatrixCache::weight);
+    }
+
+    /**
+     * @param a The matrix to invert.
+     * @return The (possibly cached) inverse.
+     * @throws ArithmeticException If the Matrix is singular.
+     */
+    public Matrix inverse(Matrix a) {
+        return get(new Key(Operation.INVERSE, a), a::inverse, MatrixCache::weight);
+    }
+
+    /**
+     * @param a The matrix to decompose.
+     * @return The (possibly cached) LUP decomposition.
+     * @throws ArithmeticException If the Matrix is singular.
+     */
+    public LUPDecompose decompose(Matrix a) {
+        return get(new Key(Operation.DECOMPOSE, a), () -> new LUPDecompose(a),
+                LUPDecompose::weight);
+    }
+
+    /**
+     * Solves Ax = b using the cached decomposition of A, if present.
+     *
+     * @param a The square matrix of coefficients.
+     * @param b The constants vector.
+     * @return The solution vector.
+     */
+    public Rational[] solve(Matrix a, Rational[] b) {
+        return decompose(a).solve(b);
+    }
+
+    /**
+     * @return The number of lookups that found a cached result.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of lookups that had to compute the result.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of results evicted to stay within capacity.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return The total number of elements currently held.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Removes all the cached results. The statistics are retained.
+     */
+    public synchronized void clear() {
+        map.clear();
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "MatrixCache[hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions() + ", size=" + getSize()
+                + "/" + capacity + "]";
+    }
+
+    private static long weight(Matrix m) {
+        return (long) m.getRows() * m.getCols();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Supplier<T> computation, Weigher<T> weigher) {
+        synchronized (this) {
+            Entry entry = map.get(key);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return (T) entry.value;
+            }
+        }
+        misses.incrementAndGet();
+        T value = computation.get();
+        long weight = weigher.weigh(value) + key.weight();
+        if (weight > capacity) {
+            // Would evict everything else and still not fit
+            return value;
+        }
+        synchronized (this) {
+            Entry old = map.put(key, new Entry(value, weight));
+            if (old != null) {
+                size -= old.weight;
+            }
+            size += weight;
+            Iterator<Entry> iterator = map.values().iterator();
+            while (size > capacity && iterator.hasNext()) {
+                size -= iterator.next().weight;
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    private interface Weigher<T> {
+        long weigh(T value);
+    }
+
+    private enum Operation {
+        MULTIPLY, TRANSPOSE, INVERSE, DECOMPOSE
+    }
+
+    private static final class Entry {
+        final Object value;
+        final long weight;
+
+        Entry(Object value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Key {
+        private final Operation operation;
+        private final Matrix[] operands;
+        private final int hash;
+
+        Key(Operation operation, Matrix... operands) {
+            this.operation = operation;
+            this.operands = operands;
+            hash = 31 * operation.ordinal() + Arrays.hashCode(operands);
+        }
+
+        /**
+         * @return The number of elements of the operands, which the key holds on to.
+         */
+        long weight() {
+            long weight = 0;
+            for (Matrix operand : operands) {
+                weight += MatrixCache.weight(operand);
+            }
+            return weight;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key k = (Key) other;
+            return hash == k.hash && operation == k.operation
+                    && Arrays.equals(operands, k.operands);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package astrobleme;
+
+/**
+ * The text formats understood by {@link MatrixReader} and {@link MatrixWriter}.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.04
+ */
+public enum MatrixFormat {
+    /**
+     * One row per line, as produced by {@link Matrix#toString()}: {@code [a, b/c, ...]}
+     */
+    ROWS,
+    /**
+     * One row per line, with the elements separated by commas: {@code a,b/c,...}
+     */
+    CSV,
+    /**
+     * The Matrix Market exchange format. Both the coordinate and the array formats
+     * can be read, with the integer or real fields and general or symmetric
+     * symmetry. Fractions that are not terminating decimals are written in the
+     * coordinate format with the non-standard field "rational", which is read back
+     * as well.
+     */
+    MATRIX_MARKET
+}
@@ -0,0 +1,108 @@
+package astrobleme;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static astrobleme.TestMatrices.RANDOM;
+import static org.testng.Assert.*;
+
+/**
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class MatrixIOTest {
+
+    private static final int COUNT = 10;
+    private static final int LIMIT = 50;
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            Matrix matrix = randomMatrix(RANDOM.nextInt(LIMIT) + 1, RANDOM.nextInt(LIMIT) + 1);
+            for (MatrixFormat format : MatrixFormat.values()) {
+                byte[] bytes = write(matrix, format);
+                Matrix read = MatrixReader.read(
+                        Channels.newChannel(new ByteArrayInputStream(bytes)), format);
+                assertEquals(read, matrix);
+            }
+            assertEquals(new String(write(matrix, MatrixFormat.ROWS), "US-ASCII"),
+                    matrix.toString());
+        }
+    }
+
+    @Test
+    public void testParallelRead() throws Exception {
+        Path path = Files.createTempFile("matrix", ".txt");
+        try {
+            for (int counter = 0; counter < COUNT; counter++) {
+                Matrix matrix = randomMatrix(RANDOM.nextInt(LIMIT) + 1, RANDOM.nextInt(LIMIT) + 1);
+                for (MatrixFormat format : MatrixFormat.values()) {
+                    Files.write(path, write(matrix, format));
+                    assertEquals(MatrixReader.read(path, format, RANDOM.nextInt(8) + 1), matrix);
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonBlocking() throws Exception {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.source().configureBlocking(false);
+            MatrixReader.read(pipe.source(), MatrixFormat.CSV);
+        } finally {
+            pipe.source().close();
+            pipe.sink().close();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonBlockingWrite() throws Exception {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.sink().configureBlocking(false);
+            MatrixWriter.write(Matrix.identity(2), pipe.sink(), MatrixFormat.CSV);
+        } finally {
+            pipe.source().close();
+            pipe.sink().close();
+        }
+    }
+
+    @Test
+    public void testMatrixMarketArray() throws Exception {
+        String text = "%%MatrixMarket matrix array real symmetric\n" +
+                "% a comment\n" +
+                "2 2\n" +
+                "1.5\n" +
+                "-2\n" +
+                "3e2\n";
+        Matrix read = MatrixReader.read(Channels.newChannel(
+                new ByteArrayInputStream(text.getBytes("US-ASCII"))), MatrixFormat.MATRIX_MARKET);
+        assertEquals(read, new Matrix(new double[][]{{1.5, -2}, {-2, 300}}));
+    }
+
+    private static byte[] write(Matrix matrix, MatrixFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MatrixWriter.write(matrix, Channels.newChannel(out), format);
+        return out.toByteArray();
+    }
+
+    private static Matrix randomMatrix(int rows, int cols) {
+        boolean decimal = RANDOM.nextBoolean();
+        Rational[][] a = new Rational[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                a[i][j] = new Rational(RANDOM.nextInt(19) - 9, decimal ? 4 : RANDOM.nextInt(9) + 1);
+            }
+        }
+        return new Matrix(a);
+    }
+}
@@ -0,0 +1,57 @@
+package astrobleme;
+
+/**
+ * The ways in which a {@link Matrix} can store its elements. The layout never
+ * affects the value of a Matrix (or its equality and hash code), only the order in
+ * which its elements are laid out in memory, and hence which traversals are cheap.
+ * Use {@link Matrix#toLayout(MatrixLayout)} to convert between them.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public enum MatrixLayout {
+    /**
+     * An array of rows, each a separate array. This is the default, and the layout
+     * that all the decompositions work on.
+     */
+    JAGGED_ROW_MAJOR,
+    /**
+     * A single array holding the rows one after the other: (i, j) is at
+     * {@code i * cols + j}.
+     */
+    FLAT_ROW_MAJOR,
+    /**
+     * A single array holding the columns one after the other: (i, j) is at
+     * {@code j * rows + i}. Column traversals, like those of the right factor
+     * of a product, are contiguous in this layout.
+     */
+    FLAT_COLUMN_MAJOR;
+
+    /**
+     * @return {@code true} if the elements of a row are adjacent.
+     */
+    public boolean isRowMajor() {
+        return this != FLAT_COLUMN_MAJOR;
+    }
+
+    /**
+     * @return {@code true} if the elements are stored in a single array.
+     */
+    boolean isFlat() {
+        return this != JAGGED_ROW_MAJOR;
+    }
+
+    /**
+     * @return The layout in which the same flat array holds the transpose.
+     */
+    MatrixLayout transposed() {
+        switch (this) {
+            case FLAT_ROW_MAJOR:
+                return FLAT_COLUMN_MAJOR;
+            case FLAT_COLUMN_MAJOR:
+                return FLAT_ROW_MAJOR;
+            default:
+                throw new IllegalStateException("Only flat layouts can be transposed.");
+        }
+    }
+}
@@ -1,10 +1,8 @@
 package astrobleme;
 
-import java.util.Arrays;
-
 /**
  * @author Subhomoy Haldar
- * @version 2017.01.24
+ * @version 2017.02.10
  */
 public class MatrixOps {
     static Rational[][] add(Rational[][] a, Rational[][] b) {
@@ -38,18 +36,145 @@ public class MatrixOps {
     }
 
     public static Rational[][] multiply(Rational[][] a, Rational[][] b) {
-        Rational[][] c = new Rational[a.length][b[0].length];
+        return multiply(a, b, Checkpoint.NONE);
+    }
+
+    static Rational[][] multiply(Rational[][] a, Rational[][] b, Checkpoint checkpoint) {
+        return multiply(a, b, new Rational[a.length][b[0].length], checkpoint);
+    }
+
+    /**
+     * Multiplies a and b into a caller-supplied array, which can be reused across
+     * calls instead of allocating a new result every time.
+     *
+     * @param a The first factor.
+     * @param b The second factor.
+     * @param c The array to store the product in; it must have as many rows as a
+     *          and as many columns as b, and must not be either of them.
+     * @return The array c.
+     */
+    public static Rational[][] multiply(Rational[][] a, Rational[][] b, Rational[][] c) {
+        if (c.length != a.length || c[0].length != b[0].length || c == a || c == b) {
+            throw new IllegalArgumentException("Incompatible product array.");
+        }
+        return multiply(a, b, c, Checkpoint.NONE);
+    }
+
+    /**
+     * Multiplies a and b into the given buffer c, which must not be either of them.
+     * If all the elements fit in longs, each one of c is a
+     * {@link RationalBlock#dot(int, RationalBlock, int)} of the two blocks.
+     *
+     * @return The buffer c.
+     */
+    static Rational[][] multiply(Rational[][] a, Rational[][] b, Rational[][] c,
+                                 Checkpoint checkpoint) {
+        RationalBlock x = RationalBlock.of(a);
+        RationalBlock y = x == null ? null : RationalBlock.of(b);
+        if (y != null) {
+            for (int i = 0; i < a.length; i++) {
+                checkpoint.check();
+                for (int j = 0; j < b[0].length; j++) {
+                    c[i][j] = x.dot(i, y, j);
+                }
+            }
+            return c;
+        }
+        RationalAccumulator sum = Workspace.local().accumulator();
         for (int i = 0; i < a.length; i++) {
+            checkpoint.check();
             for (int j = 0; j < b[0].length; j++) {
-                c[i][j] = Rational.ZERO;
+                sum.reset();
                 for (int k = 0; k < a[0].length; k++) {
-                    c[i][j] = c[i][j].add(a[i][k].multiply(b[k][j]));
+                    sum.addProduct(a[i][k], b[k][j]);
                 }
+                c[i][j] = sum.toRational();
             }
         }
         return c;
     }
 
+    /**
+     * Raises the square array to the given (positive) power by repeated squaring.
+     * At most four arrays are allocated, whatever the exponent.
+     */
+    static Rational[][] pow(Rational[][] a, long exponent) {
+        final int n = a.length;
+        Rational[][] result = null;
+        Rational[][] resultBuffer = new Rational[n][n];
+        Rational[][] base = a;
+        Rational[][] baseBuffer = null;
+        while (true) {
+            if ((exponent & 1) != 0) {
+                if (result == null) {
+                    result = new Rational[n][];
+                    for (int i = 0; i < n; i++) {
+                        result[i] = base[i].clone();
+                    }
+                } else {
+                    Rational[][] product = multiply(result, base, resultBuffer, Checkpoint.NONE);
+                    resultBuffer = result;
+                    result = product;
+                }
+            }
+            exponent >>>= 1;
+            if (exponent == 0) {
+                return result;
+            }
+            if (baseBuffer == null) {
+                baseBuffer = new Rational[n][n];
+            }
+            Rational[][] square = multiply(base, base, baseBuffer, Checkpoint.NONE);
+            // The original array must never be used as a buffer
+            baseBuffer = base == a ? new Rational[n][n] : base;
+            base = square;
+        }
+    }
+
+    /**
+     * Evaluates c[0] I + c[1] A + ... + c[d] A^d with the Paterson-Stockmeyer scheme,
+     * which needs only about 2 sqrt(d) matrix products instead of d.
+     */
+    static Rational[][] polynomial(Rational[][] a, Rational[] c) {
+        final int n = a.length;
+        final int degree = c.length - 1;
+        final int s = Math.max(1, (int) Math.ceil(Math.sqrt(degree + 1)));
+        // powers[i] = A^i for 0 < i <= min(s, degree); A^s is only needed when
+        // there is more than one block, i.e. when the degree is at least s
+        Rational[][][] powers = new Rational[s + 1][][];
+        powers[1] = a;
+        for (int i = 2; i <= Math.min(s, degree); i++) {
+            powers[i] = multiply(powers[i - 1], a);
+        }
+        // Horner's rule in A^s, over blocks of s coefficients
+        Rational[][] result = null;
+        for (int block = degree / s; block >= 0; block--) {
+            Rational[][] sum = new Rational[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    sum[i][j] = Rational.ZERO;
+                }
+            }
+            for (int i = 0; i < s && block * s + i <= degree; i++) {
+                Rational coefficient = c[block * s + i];
+                if (coefficient.isZero()) {
+                    continue;
+                }
+                for (int r = 0; r < n; r++) {
+                    if (i == 0) {
+                        sum[r][r] = sum[r][r].add(coefficient);
+                        continue;
+                    }
+                    for (int col = 0; col < n; col++) {
+                        sum[r][col] = sum[r][col].add(coefficient.multiply(powers[i][r][col]));
+                    }
+                }
+            }
+            result = result == null ? sum : add(multiply(result, powers[s]), sum);
+        }
+        return result;
+    }
+
     public static int[] compactify(Rational[][] p) {
         int[] compact = new int[p.length];
         for (int i = 0; i < p.length; i++) {
@@ -64,24 +189,59 @@ public class MatrixOps {
     }
 
     public static Rational[][] permuteRows(Rational[][] array, int[] pCompact) {
+        return permuteRows(array, pCompact, new Rational[pCompact.length][array[0].length]);
+    }
+
+    /**
+     * Permutes the rows of the array into the rows of a caller-supplied array of
+     * the same dimensions, which can be reused across calls.
+     *
+     * @param array    The array to permute.
+     * @param pCompact The compact permutation: row i of the result is row
+     *                 {@code pCompact[i]} of the array.
+     * @param into     The array to copy the rows into; it must not be the array itself.
+     * @return The array into.
+     */
+    public static Rational[][] permuteRows(Rational[][] array, int[] pCompact, Rational[][] into) {
         int n = pCompact.length;
         int m = array[0].length;
-        Rational[][] newArray = new Rational[n][];
+        if (into.length != n || into[0].length != m || into == array) {
+            throw new IllegalArgumentException("Incompatible destination array.");
+        }
         for (int i = 0; i < n; i++) {
-            newArray[i] = Arrays.copyOf(array[pCompact[i]], m);
+            System.arraycopy(array[pCompact[i]], 0, into[i], 0, m);
         }
-        return newArray;
+        return into;
     }
 
     public static Rational[][] permuteColumns(Rational[][] array, int[] pCompact) {
+        return permuteColumns(array, pCompact, new Rational[array.length][pCompact.length]);
+    }
+
+    /**
+     * Permutes the columns of the array into a caller-supplied array of the same
+     * dimensions, which can be reused across calls.
+     *
+     * @param array    The array to permute.
+     * @param pCompact The compact permutation: column j of the result is column
+     *                 {@code pCompact[j]} of the array.
+     * @param into     The array to store the result in; it must not be the array itself.
+     * @return The array into.
+     */
+    public static Rational[][] permuteColumns(Rational[][] array, int[] pCompact,
+                                              Rational[][] into) {
         int n = array.length;
         int m = pCompact.length;
-        Rational[][] newArray = new Rational[n][m];
+        if (into.length != n || into[0].length != m || into == array) {
+            throw new IllegalArgumentException("Incompatible destination array.");
+        }
         for (int i = 0; i < n; i++) {
+            Rational[] row = array[i];
+            Rational[] target = into[i];
             for (int j = 0; j < m; j++) {
-                newArray[i][j] = array[i][pCompact[j]];
+                target[j] = row[pCompact[j]];
             }
         }
-        return newArray;
+        return into;
     }
 }
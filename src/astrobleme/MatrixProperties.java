@@ -2,10 +2,11 @@ package astrobleme;
 
 /**
  * This class contains code that is used to detect whether a Matrix has any required
- * property, like being identity matrix, singular etc.
+ * property, like being identity matrix, singular etc. The checks that look at every
+ * element visit them in the order of the layout of the Matrix.
  *
  * @author Subhomoy Haldar
- * @version 2017.01.24
+ * @version 2017.02.10
  */
 class MatrixProperties {
     /**
@@ -17,10 +18,21 @@ class MatrixProperties {
      */
     static boolean isLowerTriangular(Matrix matrix) {
         if (!matrix.isSquare()) return false;
-        for (int j = 1; j < matrix.getCols(); j++) {
-            for (int i = 0; i < j; i++) {
-                if (!matrix.get(i, j).isZero()) {
-                    return false;
+        int size = matrix.getRows();
+        if (matrix.getLayout().isRowMajor()) {
+            for (int i = 0; i < size; i++) {
+                for (int j = i + 1; j < size; j++) {
+                    if (!matrix.element(i, j).isZero()) {
+                        return false;
+                    }
+                }
+            }
+        } else {
+            for (int j = 1; j < size; j++) {
+                for (int i = 0; i < j; i++) {
+                    if (!matrix.element(i, j).isZero()) {
+                        return false;
+                    }
                 }
             }
         }
@@ -36,10 +48,40 @@ class MatrixProperties {
      * @return {@code true} if the Matrix is an upper triangular matrix.
      */
     static boolean isUpperTriangular(Matrix matrix) {
+        if (!matrix.isSquare()) return false;
+        int size = matrix.getRows();
+        if (matrix.getLayout().isRowMajor()) {
+            for (int i = 1; i < size; i++) {
+                for (int j = 0; j < i; j++) {
+                    if (!matrix.element(i, j).isZero()) {
+                        return false;
+                    }
+                }
+            }
+        } else {
+            for (int j = 0; j < size; j++) {
+                for (int i = j + 1; i < size; i++) {
+                    if (!matrix.element(i, j).isZero()) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the given Matrix is square and equal to its transpose, without
+     * creating the transpose.
+     *
+     * @param matrix The Matrix to check.
+     * @return {@code true} if the Matrix is symmetric.
+     */
+    static boolean isSymmetric(Matrix matrix) {
         if (!matrix.isSquare()) return false;
         for (int i = 1; i < matrix.getRows(); i++) {
             for (int j = 0; j < i; j++) {
-                if (!matrix.get(i, j).isZero()) {
+                if (!matrix.element(i, j).equals(matrix.element(j, i))) {
                     return false;
                 }
             }
@@ -78,37 +120,29 @@ class MatrixProperties {
             return false;
         }
         int size = matrix.getRows();
-        for (int i = 0; i < size; i++) {
-            boolean foundOneInRow = false;
-            boolean foundOneInCol = false;
-            // Check the row to ensure only one 1 is present
-            for (int j = 0; j < size; j++) {
-                Rational rowElement = matrix.get(i, j);
-                Rational colElement = matrix.get(j, i);
-
-                if (rowElement.isOne()) {
-                    // check for duplicate and mark if unique
-                    if (foundOneInRow) {
+        boolean rowMajor = matrix.getLayout().isRowMajor();
+        // Count the ones in every row and column in a single pass over the elements
+        int[] rowOnes = new int[size];
+        int[] colOnes = new int[size];
+        for (int outer = 0; outer < size; outer++) {
+            for (int inner = 0; inner < size; inner++) {
+                int i = rowMajor ? outer : inner;
+                int j = rowMajor ? inner : outer;
+                Rational element = matrix.element(i, j);
+                if (element.isOne()) {
+                    // A second 1 in the same row or column
+                    if (rowOnes[i]++ > 0 || colOnes[j]++ > 0) {
                         return false;
-                    } else {
-                        foundOneInRow = true;
                     }
-                } else if (!rowElement.isZero()) {
+                } else if (!element.isZero()) {
                     // Only 0 and 1 are permitted. Anything else, and you're out!
                     return false;
                 }
-                if (colElement.isOne()) {
-                    if (foundOneInCol) {
-                        return false;
-                    } else {
-                        foundOneInCol = true;
-                    }
-                } else if (!rowElement.isZero()) {
-                    return false;
-                }
             }
-            // Finally, ensure row and column is non-empty
-            if (!foundOneInRow || !foundOneInCol) {
+        }
+        // With at most one 1 per column, a 1 in every row fills every column as well
+        for (int ones : rowOnes) {
+            if (ones == 0) {
                 return false;
             }
         }
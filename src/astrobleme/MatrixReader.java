@@ -0,0 +1,312 @@
+package astrobleme;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Reads a Matrix from a channel in one of the supported {@link MatrixFormat}s. The
+ * input is read through a buffer of bounded size and the rows are built as their
+ * lines arrive, so the text is never held in memory as a whole.
+ * <p>
+ * Files can also be split into chunks of whole lines that are parsed in parallel.
+ * Malformed input is reported as an {@link IOException}.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class MatrixReader {
+    /**
+     * Reads a Matrix from the channel, up to its end. The channel is not closed.
+     *
+     * @param channel The channel to read from, in blocking mode.
+     * @param format  The format of the text.
+     * @return The Matrix that was read.
+     * @throws IOException              If reading fails or the input is malformed.
+     * @throws IllegalArgumentException If the channel is in non-blocking mode.
+     */
+    public static Matrix read(ReadableByteChannel channel, MatrixFormat format)
+            throws IOException {
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalArgumentException("Non-blocking channels are not supported.");
+        }
+        LineScanner scanner = new LineScanner(channel, Long.MAX_VALUE);
+        if (format == MatrixFormat.MATRIX_MARKET) {
+            Header header = readHeader(scanner);
+            Rational[][] a = header.zeroes();
+            readEntries(scanner, header, a);
+            return new Matrix(a, false);
+        }
+        List<Rational[]> rows = new ArrayList<>();
+        readRows(scanner, format, rows);
+        return toMatrix(rows);
+    }
+
+    /**
+     * Reads a Matrix from the given file, splitting it into chunks of whole lines
+     * that are parsed in parallel on the common pool. Matrix Market files in the
+     * array format are read sequentially, since the position of an element there
+     * depends on everything before it.
+     *
+     * @param path   The file to read.
+     * @param format The format of the text.
+     * @param chunks The (positive) number of chunks to split the file into.
+     * @return The Matrix that was read.
+     * @throws IOException If reading fails or the input is malformed.
+     */
+    public static Matrix read(Path path, MatrixFormat format, int chunks) throws IOException {
+        if (chunks <= 0) {
+            throw new IllegalArgumentException("The number of chunks must be positive.");
+        }
+        long start = 0;
+        long end;
+        Header header = null;
+        long[] bounds;
+        try (FileChannel channel = FileChannel.open(path)) {
+            end = channel.size();
+            if (format == MatrixFormat.MATRIX_MARKET) {
+                LineScanner scanner = new LineScanner(channel, end);
+                header = readHeader(scanner);
+                if (!header.coordinate) {
+                    Rational[][] a = header.zeroes();
+                    readEntries(scanner, header, a);
+                    return new Matrix(a, false);
+                }
+                start = scanner.position();
+            }
+            bounds = boundaries(channel, start, end, chunks);
+        }
+        final Header h = header;
+        final Rational[][] a = h == null ? null : h.zeroes();
+        List<CompletableFuture<List<Rational[]>>> parts = new ArrayList<>();
+        for (int k = 0; k < chunks; k++) {
+            final long from = bounds[k];
+            final long to = bounds[k + 1];
+            parts.add(CompletableFuture.supplyAsync(() -> {
+                List<Rational[]> rows = new ArrayList<>();
+                try (FileChannel channel = FileChannel.open(path)) {
+                    channel.position(from);
+                    LineScanner scanner = new LineScanner(channel, to - from);
+                    if (h == null) {
+                        readRows(scanner, format, rows);
+                    } else {
+                        // Every entry names its own cell, so chunks never collide
+                        readEntries(scanner, h, a);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return rows;
+            }));
+        }
+        List<Rational[]> rows = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<Rational[]>> part : parts) {
+                rows.addAll(part.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+        return a != null ? new Matrix(a, false) : toMatrix(rows);
+    }
+
+    /**
+     * Splits [start, end) into the given number of ranges, each of which begins
+     * at the start of a line. Some of them may be empty.
+     */
+    private static long[] boundaries(FileChannel channel, long start, long end, int chunks)
+            throws IOException {
+        long[] bounds = new long[chunks + 1];
+        bounds[0] = start;
+        bounds[chunks] = end;
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        for (int k = 1; k < chunks; k++) {
+            long position = Math.max(bounds[k - 1], start + (end - start) * k / chunks);
+            // Move to just after the next line feed, searching from the previous byte
+            if (position > start) {
+                position--;
+                boolean found = false;
+                while (!found && position < end) {
+                    buffer.clear();
+                    int read = channel.read(buffer, position);
+                    if (read <= 0) {
+                        position = end;
+                        break;
+                    }
+                    for (int i = 0; i < read && !found; i++) {
+                        position++;
+                        found = buffer.get(i) == '\n';
+                    }
+                }
+            }
+            bounds[k] = Math.min(position, end);
+        }
+        return bounds;
+    }
+
+    private static void readRows(LineScanner scanner, MatrixFormat format, List<Rational[]> rows)
+            throws IOException {
+        String line;
+        while ((line = scanner.nextLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (format == MatrixFormat.ROWS) {
+                if (!line.startsWith("[") || !line.endsWith("]")) {
+                    throw new IOException("Malformed row: " + line);
+                }
+                line = line.substring(1, line.length() - 1);
+            }
+            String[] tokens = line.split(",");
+            Rational[] row = new Rational[tokens.length];
+            for (int j = 0; j < tokens.length; j++) {
+                row[j] = parse(tokens[j]);
+            }
+            rows.add(row);
+        }
+    }
+
+    private static Matrix toMatrix(List<Rational[]> rows) throws IOException {
+        if (rows.isEmpty()) {
+            throw new IOException("No rows found.");
+        }
+        int cols = rows.get(0).length;
+        for (Rational[] row : rows) {
+            if (row.length != cols) {
+                throw new IOException("All rows must have the same number of elements.");
+            }
+        }
+        return new Matrix(rows.toArray(new Rational[rows.size()][]), false);
+    }
+
+    private static Rational parse(String token) throws IOException {
+        try {
+            return new Rational(token.trim());
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IOException("Malformed element: " + token, e);
+        }
+    }
+
+    /**
+     * The information from the banner and the size line of a Matrix Market file.
+     */
+    private static final class Header {
+        boolean coordinate;
+        boolean symmetric;
+        int rows;
+        int cols;
+
+        Rational[][] zeroes() {
+            Rational[][] a = new Rational[rows][cols];
+            for (Rational[] row : a) {
+                Arrays.fill(row, Rational.ZERO);
+            }
+            return a;
+        }
+    }
+
+    private static Header readHeader(LineScanner scanner) throws IOException {
+        String banner = scanner.nextLine();
+        if (banner == null || !banner.startsWith("%%MatrixMarket")) {
+            throw new IOException("Missing Matrix Market banner.");
+        }
+        String[] words = banner.trim().toLowerCase().split("\\s+");
+        if (words.length < 5 || !words[1].equals("matrix")) {
+            throw new IOException("Unsupported Matrix Market banner: " + banner);
+        }
+        Header header = new Header();
+        if (words[2].equals("coordinate")) {
+            header.coordinate = true;
+        } else if (!words[2].equals("array")) {
+            throw new IOException("Unsupported Matrix Market format: " + words[2]);
+        }
+        if (!words[3].equals("integer") && !words[3].equals("real")
+                && !words[3].equals("rational")) {
+            throw new IOException("Unsupported Matrix Market field: " + words[3]);
+        }
+        if (words[4].equals("symmetric")) {
+            header.symmetric = true;
+        } else if (!words[4].equals("general")) {
+            throw new IOException("Unsupported Matrix Market symmetry: " + words[4]);
+        }
+        String line;
+        do {
+            line = scanner.nextLine();
+            if (line == null) {
+                throw new IOException("Missing Matrix Market size line.");
+            }
+            line = line.trim();
+        } while (line.isEmpty() || line.startsWith("%"));
+        String[] size = line.split("\\s+");
+        try {
+            header.rows = Integer.parseInt(size[0]);
+            header.cols = Integer.parseInt(size[1]);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed Matrix Market size line: " + line, e);
+        }
+        if (header.rows <= 0 || header.cols <= 0) {
+            throw new IOException("Matrix Market dimensions must be positive.");
+        }
+        if (header.symmetric && header.rows != header.cols) {
+            throw new IOException("Symmetric Matrix Market matrices must be square.");
+        }
+        return header;
+    }
+
+    private static void readEntries(LineScanner scanner, Header header, Rational[][] a)
+            throws IOException {
+        // Position of the next element in the (column major) array format
+        int i = 0;
+        int j = 0;
+        String line;
+        while ((line = scanner.nextLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("%")) {
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            Rational value;
+            if (header.coordinate) {
+                if (tokens.length != 3) {
+                    throw new IOException("Malformed Matrix Market entry: " + line);
+                }
+                try {
+                    i = Integer.parseInt(tokens[0]) - 1;
+                    j = Integer.parseInt(tokens[1]) - 1;
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed Matrix Market entry: " + line, e);
+                }
+                value = parse(tokens[2]);
+            } else {
+                value = parse(tokens[0]);
+            }
+            if (i < 0 || i >= header.rows || j < 0 || j >= header.cols) {
+                throw new IOException("Matrix Market entry out of range: " + line);
+            }
+            a[i][j] = value;
+            if (header.symmetric) {
+                a[j][i] = value;
+            }
+            if (!header.coordinate) {
+                // Symmetric arrays list only the lower triangle
+                if (++i == header.rows) {
+                    j++;
+                    i = header.symmetric ? j : 0;
+                }
+            }
+        }
+    }
+}
@@ -9,7 +9,7 @@ import static org.testng.Assert.*;
 
 /**
  * @author Subhomoy Haldar
- * @version 2017.01.24
+ * @version 2017.02.10
  */
 public class MatrixTest {
 
@@ -90,6 +90,329 @@ public class MatrixTest {
         assertEquals(false, new Matrix(a4).isPermutation());
     }
 
+    @Test
+    public void testHashCode() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int rows = RANDOM.nextInt(LIMIT) + 1;
+            int cols = RANDOM.nextInt(LIMIT) + 1;
+            Rational[][] a = new Rational[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    a[i][j] = randomRational();
+                }
+            }
+            assertEquals(new Matrix(a).hashCode(), new Matrix(a).hashCode());
+            assertEquals(new Matrix(a).transpose().transpose().hashCode(), new Matrix(a).hashCode());
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        Matrix a = new Matrix(new double[][]{{1, 2}, {3, 4}});
+        Matrix b = new Matrix(new double[][]{{5, 6}, {7, 8}});
+        // Every entry counts its operands as well as its result
+        MatrixCache cache = new MatrixCache(20);
+
+        assertEquals(cache.multiply(a, b), a.multiply(b));
+        assertEquals(cache.multiply(new Matrix(a.toDoubleArray()), b), a.multiply(b));
+        assertEquals(cache.getHits(), 1);
+        assertEquals(cache.getMisses(), 1);
+
+        assertEquals(cache.inverse(a).multiply(a), Matrix.identity(2));
+        assertEquals(cache.transpose(a), a.transpose());
+        assertEquals(cache.getEvictions(), 1);
+        assertEquals(cache.getSize(), 16);
+
+        // The packed factors of a 2 x 2 Matrix hold 3 elements each
+        cache.clear();
+        cache.decompose(a);
+        assertEquals(cache.getSize(), 10);
+    }
+
+    @Test
+    public void testPow() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(5) + 1;
+            Matrix matrix = new Matrix(randomIntegers(size));
+            Matrix expected = Matrix.identity(size);
+            for (int k = 0; k < 12; k++) {
+                assertEquals(matrix.pow(k), expected);
+                expected = expected.multiply(matrix);
+            }
+        }
+        Matrix diagonal = new Matrix(new double[][]{{2, 0}, {0, -1}});
+        assertEquals(diagonal.pow(1000000).get(1, 1), Rational.ONE);
+        assertEquals(diagonal.pow(-2), new Matrix(new double[][]{{0.25, 0}, {0, 1}}));
+        Matrix permutation = new Matrix(new double[][]{{0, 1, 0}, {0, 0, 1}, {1, 0, 0}});
+        assertEquals(permutation.pow(1000000), permutation);
+        assertEquals(permutation.pow(Long.MAX_VALUE), permutation);
+    }
+
+    @Test
+    public void testPolynomial() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(5) + 1;
+            Matrix matrix = new Matrix(randomIntegers(size));
+            Rational[] c = new Rational[RANDOM.nextInt(12) + 1];
+            Matrix expected = Matrix.identity(size).multiply(Rational.ZERO);
+            for (int k = 0; k < c.length; k++) {
+                c[k] = new Rational(RANDOM.nextInt(21) - 10);
+                expected = expected.add(matrix.pow(k).multiply(c[k]));
+            }
+            assertEquals(matrix.polynomial(c), expected);
+        }
+    }
+
+    @Test
+    public void testStructuredMultiply() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(10) + 1;
+            double[][] lower = randomIntegers(size);
+            double[][] upper = randomIntegers(size);
+            double[][] diagonal = new double[size][size];
+            for (int i = 0; i < size; i++) {
+                diagonal[i][i] = lower[i][i];
+                for (int j = i + 1; j < size; j++) {
+                    lower[i][j] = upper[j][i] = 0;
+                }
+            }
+            Matrix dense = new Matrix(randomIntegers(size));
+            Matrix[] structured = {new Matrix(lower), new Matrix(upper), new Matrix(diagonal)};
+            for (Matrix m : structured) {
+                assertEquals(m.multiply(m), new Matrix(MatrixOps.multiply(m.array(), m.array())));
+                assertEquals(m.multiply(dense), new Matrix(MatrixOps.multiply(m.array(), dense.array())));
+                assertEquals(dense.multiply(m), new Matrix(MatrixOps.multiply(dense.array(), m.array())));
+            }
+        }
+    }
+
+    @Test
+    public void testSymmetricMultiply() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(10) + 1;
+            int cols = RANDOM.nextInt(10) + 1;
+            // Too large for longs, so that the packed symmetric kernels are used
+            Rational large = new Rational(Long.MAX_VALUE).multiply(new Rational(3));
+            double[][] data = randomIntegers(Math.max(size, cols));
+            Rational[][] a = new Rational[size][cols];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < cols; j++) {
+                    a[i][j] = new Rational(data[i][j]);
+                }
+            }
+            a[RANDOM.nextInt(size)][RANDOM.nextInt(cols)] = large;
+            Matrix x = new Matrix(a);
+            Rational[][] t = x.transpose().array();
+
+            Matrix gram = x.multiply(x.transpose());
+            assertEquals(gram, new Matrix(MatrixOps.multiply(a, t)));
+            assertTrue(gram.isSymmetric());
+            assertEquals(x.transpose().multiply(x), new Matrix(MatrixOps.multiply(t, a)));
+
+            Matrix s = gram.add(Matrix.identity(size));
+            Matrix b = new Matrix(randomIntegers(size));
+            assertEquals(s.multiply(b), new Matrix(MatrixOps.multiply(s.array(), b.array())));
+            Rational[][] packed = PackedOps.packUpper(s.array());
+            assertEquals(PackedOps.unpackSymmetric(packed), s.array());
+            assertEquals(PackedOps.multiplySymmetric(packed, b.array(), Checkpoint.NONE),
+                    MatrixOps.multiply(s.array(), b.array()));
+        }
+    }
+
+    @Test
+    public void testLongArithmetic() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(10) + 1;
+            // Large enough that some of the sums and products overflow longs
+            int bits = RANDOM.nextBoolean() ? 8 : 40;
+            Rational[][] a = new Rational[size][size];
+            Rational[][] b = new Rational[size][size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    a[i][j] = new Rational(RANDOM.nextLong() >> (64 - bits),
+                            (RANDOM.nextLong() >>> (64 - bits)) + 1);
+                    b[i][j] = new Rational(RANDOM.nextLong() >> (64 - bits),
+                            (RANDOM.nextLong() >>> (64 - bits)) + 1);
+                }
+            }
+            Matrix x = new Matrix(a);
+            Matrix y = new Matrix(b);
+            assertEquals(x.multiply(y), new Matrix(MatrixOps.multiply(a, b)));
+            assertEquals(x.add(y), new Matrix(MatrixOps.add(a, b)));
+            assertEquals(x.subtract(y), new Matrix(MatrixOps.subtract(a, b)));
+
+            // The dot kernel, against plain Rational arithmetic
+            RationalBlock xb = RationalBlock.of(a);
+            RationalBlock yb = RationalBlock.of(b);
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    Rational expected = Rational.ZERO;
+                    for (int k = 0; k < size; k++) {
+                        expected = expected.add(a[i][k].multiply(b[k][j]));
+                    }
+                    assertEquals(xb.dot(i, yb, j), expected);
+                }
+            }
+            assertEquals(xb.dot(0, yb, 0, size, size), Rational.ZERO);
+
+            // The block is converted once, and results keep the one they came from
+            RationalBlock block = x.block();
+            assertSame(x.block(), block);
+            Matrix sum = x.add(y);
+            if (sum.block() != null) {
+                assertEquals(sum.block().toString(), RationalBlock.of(sum).toString());
+            }
+
+            // Substitution with the factors as longs
+            Matrix dominant = x.add(Matrix.identity(size).multiply(new Rational(1L << (bits + 4))));
+            LUPDecompose lup = new LUPDecompose(dominant);
+            Rational[] c = TestMatrices.randomVector(size);
+            Rational[] permuted = new Rational[size];
+            int[] p = lup.getPermutation();
+            for (int i = 0; i < size; i++) {
+                permuted[i] = c[p[i]];
+            }
+            assertEquals(LUPDecompose.solve(lup.getL().array(), lup.getU().array(), permuted),
+                    lup.solve(c));
+        }
+    }
+
+    @Test
+    public void testWorkspace() throws Exception {
+        Workspace workspace = new Workspace(LIMIT / 10);
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT / 10) + 1;
+            Matrix a = new Matrix(randomIntegers(size)).add(Matrix.identity(size).multiply(new Rational(10)));
+            LUPDecompose lup = new LUPDecompose(a);
+            Rational[] b = new Matrix(randomIntegers(size)).array()[0];
+            Rational[] expected = lup.solve(b);
+            Rational[] x = new Rational[size];
+            // Reusing both the output and the workspace, and solving in place
+            assertEquals(lup.solve(b, x, workspace), expected);
+            assertEquals(lup.solve(b, x, Workspace.local()), expected);
+            assertEquals(lup.solve(b.clone(), x, workspace), expected);
+            Rational[] c = b.clone();
+            assertSame(lup.solve(c, c, workspace), c);
+            assertEquals(c, expected);
+
+            Rational[][] m = a.array();
+            int[] p = lup.getPermutation();
+            Rational[][] into = new Rational[size][size];
+            assertEquals(MatrixOps.permuteRows(m, p, into), MatrixOps.permuteRows(m, p));
+            assertEquals(MatrixOps.permuteColumns(m, p, into), MatrixOps.permuteColumns(m, p));
+            assertEquals(new Matrix(MatrixOps.multiply(m, m, into)), a.multiply(a));
+            if (RANDOM.nextBoolean()) {
+                workspace.release();
+                Workspace.releaseLocal();
+            }
+        }
+    }
+
+    @Test
+    public void testLayouts() throws Exception {
+        MatrixLayout[] layouts = MatrixLayout.values();
+        for (int counter = 0; counter < COUNT; counter++) {
+            int rows = RANDOM.nextInt(LIMIT / 2) + 1;
+            int cols = RANDOM.nextInt(LIMIT / 2) + 1;
+            Rational[][] a = new Rational[rows][cols];
+            Rational[][] b = new Rational[cols][rows];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    a[i][j] = new Rational(RANDOM.nextInt(7) - 3, RANDOM.nextInt(3) + 1);
+                    b[j][i] = new Rational(RANDOM.nextInt(7) - 3);
+                }
+            }
+            if (RANDOM.nextBoolean()) {
+                // Too large for longs, so that the Rational kernels are used as well
+                Rational large = new Rational(Long.MAX_VALUE).multiply(new Rational(RANDOM.nextInt(7) + 2));
+                a[RANDOM.nextInt(rows)][RANDOM.nextInt(cols)] = large;
+                b[RANDOM.nextInt(cols)][RANDOM.nextInt(rows)] = large.negate();
+            }
+            Matrix x = new Matrix(a);
+            Matrix y = new Matrix(b);
+            Matrix product = new Matrix(MatrixOps.multiply(a, b));
+            int[] p = shuffled(rows);
+            int[] q = shuffled(cols);
+            Matrix rowsPermuted = new Matrix(MatrixOps.permuteRows(a, p));
+            Matrix colsPermuted = new Matrix(MatrixOps.permuteColumns(a, q));
+            for (MatrixLayout first : layouts) {
+                Matrix u = x.toLayout(first);
+                assertEquals(u.getLayout(), first);
+                assertEquals(u, x);
+                assertEquals(x, u);
+                assertEquals(u.hashCode(), x.hashCode());
+                assertEquals(u.toString(), x.toString());
+                assertEquals(u.get(rows - 1, 0), a[rows - 1][0]);
+                assertEquals(u.transpose(), x.transpose());
+                assertSame(u.transpose().transpose(), u);
+                assertEquals(u.permuteRows(p), rowsPermuted);
+                assertEquals(u.permuteRows(p).getLayout(), first);
+                assertEquals(u.permuteColumns(q), colsPermuted);
+                for (MatrixLayout second : layouts) {
+                    assertEquals(u.toLayout(second).toLayout(first), u);
+                    assertEquals(u.multiply(y.toLayout(second)), product);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLayoutProperties() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT / 10) + 1;
+            int[] p = shuffled(size);
+            Matrix permutation = Matrix.identity(size).permuteRows(p);
+            double[][] lower = randomIntegers(size);
+            for (int i = 0; i < size; i++) {
+                for (int j = i + 1; j < size; j++) {
+                    lower[i][j] = 0;
+                }
+            }
+            for (MatrixLayout layout : MatrixLayout.values()) {
+                Matrix m = permutation.toLayout(layout);
+                assertTrue(m.isPermutation());
+                assertEquals(m.pow(size + 1), permutation.pow(size + 1));
+                Matrix l = new Matrix(lower).toLayout(layout);
+                assertTrue(l.isLowerTriangular());
+                assertTrue(l.transpose().isUpperTriangular());
+                assertEquals(l.isUpperTriangular(), l.isDiagonal());
+                assertEquals(l.add(l), new Matrix(lower).multiply(new Rational(2)));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidPermutation() throws Exception {
+        Matrix.identity(3).toLayout(MatrixLayout.FLAT_COLUMN_MAJOR).permuteColumns(new int[]{0, 1, 1});
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWorkspaceMismatch() throws Exception {
+        LUPDecompose lup = new LUPDecompose(Matrix.identity(3));
+        lup.solve(new Rational[]{Rational.ONE, Rational.ONE, Rational.ONE},
+                new Rational[2], Workspace.local());
+    }
+
+    private static double[][] randomIntegers(int size) {
+        double[][] a = new double[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                a[i][j] = RANDOM.nextInt(7) - 3;
+            }
+        }
+        return a;
+    }
+
+    private static int[] shuffled(int size) {
+        int[] p = new int[size];
+        for (int i = 0; i < size; i++) {
+            int j = RANDOM.nextInt(i + 1);
+            p[i] = p[j];
+            p[j] = i;
+        }
+        return p;
+    }
+
     private static Rational randomRational() {
         return new Rational(RANDOM.nextDouble());
     }
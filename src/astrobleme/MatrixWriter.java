@@ -0,0 +1,148 @@
+package astrobleme;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes a Matrix to a channel in one of the supported {@link MatrixFormat}s. The
+ * text is produced element by element into a buffer of bounded size, which is
+ * flushed to the channel whenever it fills up, so the whole representation is
+ * never held in memory at once.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class MatrixWriter {
+    private static final BigInteger FIVE = BigInteger.valueOf(5);
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(LineScanner.BUFFER_SIZE);
+
+    private MatrixWriter(final WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes the Matrix in the given format. The channel is not closed.
+     *
+     * @param matrix  The Matrix to write.
+     * @param channel The channel to write to, in blocking mode.
+     * @param format  The required format.
+     * @throws IOException              If writing to the channel fails.
+     * @throws IllegalArgumentException If the channel is in non-blocking mode.
+     */
+    public static void write(Matrix matrix, WritableByteChannel channel, MatrixFormat format)
+            throws IOException {
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalArgumentException("Non-blocking channels are not supported.");
+        }
+        MatrixWriter writer = new MatrixWriter(channel);
+        switch (format) {
+            case ROWS:
+                writer.writeRows(matrix.array(), "[", ", ", "]");
+                break;
+            case CSV:
+                writer.writeRows(matrix.array(), "", ",", "");
+                break;
+            case MATRIX_MARKET:
+                writer.writeMatrixMarket(matrix.array());
+                break;
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the rows exactly as {@link Matrix#toString()} separates them.
+     */
+    private void writeRows(Rational[][] a, String open, String separator, String close)
+            throws IOException {
+        for (int i = 0; i < a.length; i++) {
+            if (i > 0) {
+                put("\n");
+            }
+            put(open);
+            for (int j = 0; j < a[i].length; j++) {
+                if (j > 0) {
+                    put(separator);
+                }
+                put(String.valueOf(a[i][j]));
+            }
+            put(close);
+        }
+    }
+
+    private void writeMatrixMarket(Rational[][] a) throws IOException {
+        // A first pass decides the field type and counts the entries
+        long entries = 0;
+        boolean integer = true;
+        boolean decimal = true;
+        for (Rational[] row : a) {
+            for (Rational element : row) {
+                if (element.isZero()) {
+                    continue;
+                }
+                entries++;
+                if (!element.getDenominator().equals(BigInteger.ONE)) {
+                    integer = false;
+                    decimal = decimal && isTerminating(element.getDenominator());
+                }
+            }
+        }
+        String field = integer ? "integer" : decimal ? "real" : "rational";
+        put("%%MatrixMarket matrix coordinate " + field + " general\n");
+        put(a.length + " " + a[0].length + " " + entries + "\n");
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < a[i].length; j++) {
+                Rational element = a[i][j];
+                if (element.isZero()) {
+                    continue;
+                }
+                put((i + 1) + " " + (j + 1) + " ");
+                put(field.equals("real") ? toDecimal(element) : element.toString());
+                put("\n");
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the denominator has no prime factors other than 2 and 5.
+     */
+    private static boolean isTerminating(BigInteger denominator) {
+        BigInteger d = denominator.shiftRight(denominator.getLowestSetBit());
+        while (d.mod(FIVE).signum() == 0) {
+            d = d.divide(FIVE);
+        }
+        return d.equals(BigInteger.ONE);
+    }
+
+    private static String toDecimal(Rational r) {
+        // Exact, since the decimal terminates
+        return new BigDecimal(r.getNumerator())
+                .divide(new BigDecimal(r.getDenominator()))
+                .toPlainString();
+    }
+
+    private void put(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put((byte) s.charAt(i));
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            if (channel.write(buffer) == 0) {
+                // Only a non-blocking channel accepts no bytes at all
+                throw new IOException("No bytes were written; the channel must be blocking.");
+            }
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,240 @@
+package astrobleme;
+
+/**
+ * Packed storage and kernels for structured square matrices. Only the part of the
+ * matrix that can be non-zero (or, for symmetric ones, that is not redundant) is
+ * stored, as a jagged array:
+ * <ul>
+ * <li>lower triangular: row i holds columns 0 to i, i.e. {@code l[i][j]} is (i, j);</li>
+ * <li>upper triangular (and symmetric): row i holds columns i to n - 1, i.e.
+ * {@code u[i][j - i]} is (i, j);</li>
+ * <li>diagonal: a plain vector of the diagonal elements.</li>
+ * </ul>
+ * This halves the memory needed, and the kernels never touch the known zeroes.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+class PackedOps {
+    static Rational[][] packLower(Rational[][] a) {
+        Rational[][] l = new Rational[a.length][];
+        for (int i = 0; i < a.length; i++) {
+            l[i] = new Rational[i + 1];
+            System.arraycopy(a[i], 0, l[i], 0, i + 1);
+        }
+        return l;
+    }
+
+    static Rational[][] packUpper(Rational[][] a) {
+        final int n = a.length;
+        Rational[][] u = new Rational[n][];
+        for (int i = 0; i < n; i++) {
+            u[i] = new Rational[n - i];
+            System.arraycopy(a[i], i, u[i], 0, n - i);
+        }
+        return u;
+    }
+
+    static Rational[] packDiagonal(Rational[][] a) {
+        Rational[] d = new Rational[a.length];
+        for (int i = 0; i < a.length; i++) {
+            d[i] = a[i][i];
+        }
+        return d;
+    }
+
+    static Rational[][] unpackLower(Rational[][] l) {
+        final int n = l.length;
+        Rational[][] a = new Rational[n][n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(l[i], 0, a[i], 0, i + 1);
+            for (int j = i + 1; j < n; j++) {
+                a[i][j] = Rational.ZERO;
+            }
+        }
+        return a;
+    }
+
+    static Rational[][] unpackUpper(Rational[][] u) {
+        final int n = u.length;
+        Rational[][] a = new Rational[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < i; j++) {
+                a[i][j] = Rational.ZERO;
+            }
+            System.arraycopy(u[i], 0, a[i], i, n - i);
+        }
+        return a;
+    }
+
+    static Rational[][] unpackSymmetric(Rational[][] u) {
+        final int n = u.length;
+        Rational[][] a = new Rational[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                a[i][j] = a[j][i] = u[i][j - i];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * @return DB, i.e. the rows of b scaled by the diagonal elements.
+     */
+    static Rational[][] multiply(Rational[] d, Rational[][] b, Checkpoint checkpoint) {
+        Rational[][] c = new Rational[b.length][b[0].length];
+        for (int i = 0; i < b.length; i++) {
+            checkpoint.check();
+            for (int j = 0; j < c[i].length; j++) {
+                c[i][j] = d[i].multiply(b[i][j]);
+            }
+        }
+        return c;
+    }
+
+    /**
+     * @return AD, i.e. the columns of a scaled by the diagonal elements.
+     */
+    static Rational[][] multiply(Rational[][] a, Rational[] d, Checkpoint checkpoint) {
+        Rational[][] c = new Rational[a.length][d.length];
+        for (int i = 0; i < a.length; i++) {
+            checkpoint.check();
+            for (int j = 0; j < d.length; j++) {
+                c[i][j] = a[i][j].multiply(d[j]);
+            }
+        }
+        return c;
+    }
+
+    /**
+     * @return The packed product of two packed lower triangular matrices.
+     */
+    static Rational[][] multiplyLower(Rational[][] a, Rational[][] b, Checkpoint checkpoint) {
+        final int n = a.length;
+        Rational[][] c = new Rational[n][];
+        RationalAccumulator sum = new RationalAccumulator();
+        for (int i = 0; i < n; i++) {
+            checkpoint.check();
+            c[i] = new Rational[i + 1];
+            for (int j = 0; j <= i; j++) {
+                sum.reset();
+                for (int k = j; k <= i; k++) {
+                    sum.addProduct(a[i][k], b[k][j]);
+                }
+                c[i][j] = sum.toRational();
+            }
+        }
+        return c;
+    }
+
+    /**
+     * @return The packed product of two packed upper triangular matrices.
+     */
+    static Rational[][] multiplyUpper(Rational[][] a, Rational[][] b, Checkpoint checkpoint) {
+        final int n = a.length;
+        Rational[][] c = new Rational[n][];
+        RationalAccumulator sum = new RationalAccumulator();
+        for (int i = 0; i < n; i++) {
+            checkpoint.check();
+            c[i] = new Rational[n - i];
+            for (int j = i; j < n; j++) {
+                sum.reset();
+                for (int k = i; k <= j; k++) {
+                    sum.addProduct(a[i][k - i], b[k][j - k]);
+                }
+                c[i][j - i] = sum.toRational();
+            }
+        }
+        return c;
+    }
+
+    /**
+     * @return SB, where S is given in packed (upper half) symmetric form.
+     */
+    static Rational[][] multiplySymmetric(Rational[][] s, Rational[][] b, Checkpoint checkpoint) {
+        final int n = s.length;
+        final int m = b[0].length;
+        Rational[][] c = new Rational[n][m];
+        RationalAccumulator sum = new RationalAccumulator();
+        for (int i = 0; i < n; i++) {
+            checkpoint.check();
+            for (int j = 0; j < m; j++) {
+                sum.reset();
+                for (int k = 0; k < n; k++) {
+                    sum.addProduct(k < i ? s[k][i - k] : s[i][k - i], b[k][j]);
+                }
+                c[i][j] = sum.toRational();
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Computes AA<sup>T</sup>, which is symmetric, so only the upper half is formed:
+     * element (i, j) is the dot product of rows i and j of a, which are both read
+     * contiguously.
+     *
+     * @return AA<sup>T</sup> in packed (upper half) symmetric form.
+     */
+    static Rational[][] multiplyTransposed(Rational[][] a, Checkpoint checkpoint) {
+        final int n = a.length;
+        final int m = a[0].length;
+        Rational[][] s = new Rational[n][];
+        RationalAccumulator sum = new RationalAccumulator();
+        for (int i = 0; i < n; i++) {
+            checkpoint.check();
+            s[i] = new Rational[n - i];
+            for (int j = i; j < n; j++) {
+                sum.reset();
+                for (int k = 0; k < m; k++) {
+                    sum.addProduct(a[i][k], a[j][k]);
+                }
+                s[i][j - i] = sum.toRational();
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Solves Ly = b by forward substitution with a packed lower triangular L, into
+     * the given buffer y (which may be b itself), using the given accumulator for
+     * the sums.
+     *
+     * @param unit Whether the diagonal of L is known to be all ones (and is ignored).
+     * @return The buffer y.
+     */
+    static Rational[] forward(Rational[][] l, Rational[] b, Rational[] y, boolean unit,
+                              RationalAccumulator sum, Checkpoint checkpoint) {
+        final int n = l.length;
+        for (int i = 0; i < n; i++) {
+            checkpoint.check();
+            sum.reset().add(b[i]);
+            for (int j = 0; j < i; j++) {
+                sum.subtractProduct(l[i][j], y[j]);
+            }
+            y[i] = unit ? sum.toRational() : sum.toRational().divide(l[i][i]);
+        }
+        return y;
+    }
+
+    /**
+     * Solves Ux = y by backward substitution with a packed upper triangular U, into
+     * the given buffer x (which may be y itself), using the given accumulator for
+     * the sums.
+     *
+     * @return The buffer x.
+     */
+    static Rational[] backward(Rational[][] u, Rational[] y, Rational[] x,
+                               RationalAccumulator sum, Checkpoint checkpoint) {
+        final int n = u.length;
+        for (int i = n - 1; i >= 0; i--) {
+            checkpoint.check();
+            sum.reset().add(y[i]);
+            for (int j = i + 1; j < n; j++) {
+                sum.subtractProduct(u[i][j - i], x[j]);
+            }
+            x[i] = sum.toRational().divide(u[i][0]);
+        }
+        return x;
+    }
+}
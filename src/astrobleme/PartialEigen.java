@@ -0,0 +1,386 @@
+package astrobleme;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * The k eigenpairs of largest magnitude of a square Matrix, found in double
+ * precision by iterative methods that only need products of the Matrix with
+ * vectors. The Matrix is converted once to primitive storage (compressed rows if
+ * it is sparse, see {@link DoubleOperator}), so large sparse matrices like the
+ * adjacency matrices of graphs can be handled without ever forming a dense array
+ * of doubles.
+ * <p>
+ * Two methods are available:
+ * <ul>
+ * <li>{@link #lanczos(Matrix, int)}: the Lanczos iteration with full
+ * reorthogonalization and thick restarts, for symmetric matrices. It converges
+ * much faster and is the method of choice.</li>
+ * <li>{@link #power(Matrix, int)}: (block) power iteration with Rayleigh-Ritz
+ * projection. It works for symmetric matrices, and for general matrices with a
+ * single, real dominant eigenvalue (k = 1).</li>
+ * </ul>
+ * The eigenpairs are sorted by decreasing magnitude of the eigenvalues. A pair
+ * (&lambda;, v) is accepted when |Av - &lambda;v| &le; tolerance &times; |&lambda;<sub>max</sub>|.
+ * For all the eigenvalues of a small Matrix, see {@link EigenDecompose}.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.06
+ */
+public class PartialEigen {
+    private static final double DEFAULT_TOLERANCE = 1e-10;
+    private static final int DEFAULT_ITERATIONS = 10000;
+    // A residual this much smaller than Av means that an invariant subspace was found
+    private static final double BREAKDOWN = 1e-12;
+    // The starting vectors are random, but the results should be reproducible
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final double[] values;
+    private final double[][] vectors;
+    private final int iterations;
+
+    private PartialEigen(final double[] values, final double[][] vectors,
+                         final int iterations) {
+        this.values = values;
+        this.vectors = vectors;
+        this.iterations = iterations;
+    }
+
+    /**
+     * @return The eigenvalues, by decreasing magnitude.
+     */
+    public double[] getEigenvalues() {
+        return values.clone();
+    }
+
+    /**
+     * @param index The index of the eigenvalue.
+     * @return The unit eigenvector of the eigenvalue at the given index.
+     */
+    public double[] getEigenvector(int index) {
+        return vectors[index].clone();
+    }
+
+    /**
+     * @return The number of restarts (for Lanczos) or iterations (for the power
+     * method) that were needed.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Finds the top k eigenpairs of a symmetric Matrix with the default tolerance.
+     *
+     * @param matrix The symmetric Matrix.
+     * @param k      The number of eigenpairs required.
+     * @return The eigenpairs of largest magnitude.
+     * @see #lanczos(Matrix, int, double, int)
+     */
+    public static PartialEigen lanczos(Matrix matrix, int k) {
+        return lanczos(matrix, k, DEFAULT_TOLERANCE, DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Finds the top k eigenpairs of a symmetric Matrix by the Lanczos iteration.
+     * A Krylov basis of a few times k vectors is built, and when it is full the
+     * best Ritz vectors are kept and the rest discarded (a thick restart).
+     *
+     * @param matrix    The symmetric Matrix.
+     * @param k         The number of eigenpairs required.
+     * @param tolerance The relative tolerance of the residuals.
+     * @param restarts  The maximum number of restarts.
+     * @return The eigenpairs of largest magnitude.
+     * @throws IllegalArgumentException If the Matrix is not symmetric or the other
+     *                                  arguments are out of range.
+     * @throws ArithmeticException      If the iteration does not converge.
+     */
+    public static PartialEigen lanczos(Matrix matrix, int k, double tolerance, int restarts) {
+        if (!matrix.isSymmetric()) {
+            throw new IllegalArgumentException("The Lanczos iteration needs a symmetric Matrix.");
+        }
+        checkArguments(matrix, k, tolerance, restarts);
+        final DoubleOperator operator = DoubleOperator.of(matrix);
+        final int n = operator.size();
+        final int m = Math.min(n, Math.max(2 * k, k + 32));
+        final Random random = new Random(SEED);
+
+        // The rows of v are the orthonormal basis vectors, t is the projection of A
+        double[][] v = new double[m + 1][];
+        double[][] t = new double[m][m];
+        v[0] = random(n, random);
+        normalize(v[0]);
+        int j = 0;
+        for (int restart = 0; ; restart++) {
+            double beta = 0;
+            while (j < m) {
+                double[] w = new double[n];
+                operator.multiply(v[j], w);
+                double before = norm(w);
+                double[] h = orthogonalize(w, v, j + 1);
+                for (int i = 0; i <= j; i++) {
+                    t[i][j] = t[j][i] = h[i];
+                }
+                beta = norm(w);
+                j++;
+                if (j == n) {
+                    // The whole space is spanned, so the projection is exact
+                    beta = 0;
+                    break;
+                }
+                if (beta <= BREAKDOWN * before) {
+                    // An invariant subspace; continue with any new direction
+                    beta = 0;
+                    w = random(n, random);
+                    orthogonalize(w, v, j);
+                }
+                normalize(w);
+                v[j] = w;
+            }
+
+            // Rayleigh-Ritz on the projection
+            double[][] s = copy(t, j);
+            EigenDecompose projection = new EigenDecompose(s, true);
+            double[] theta = projection.getRealEigenvalues();
+            Integer[] order = byMagnitude(theta);
+            double largest = Math.abs(theta[order[0]]);
+            boolean converged = true;
+            for (int i = 0; i < k; i++) {
+                double[] y = projection.getEigenvector(order[i]);
+                if (beta * Math.abs(y[j - 1]) > tolerance * largest) {
+                    converged = false;
+                    break;
+                }
+            }
+            if (converged || restart == restarts) {
+                if (!converged) {
+                    throw new ArithmeticException("The Lanczos iteration did not converge.");
+                }
+                double[] values = new double[k];
+                double[][] vectors = new double[k][];
+                for (int i = 0; i < k; i++) {
+                    values[i] = theta[order[i]];
+                    vectors[i] = combine(v, projection.getEigenvector(order[i]), n);
+                }
+                return new PartialEigen(values, vectors, restart);
+            }
+
+            // Keep the best Ritz vectors, along with the last residual direction
+            final int p = Math.min(m - 1, k + (m - k) / 2);
+            double[][] kept = new double[m + 1][];
+            for (int i = 0; i < p; i++) {
+                kept[i] = combine(v, projection.getEigenvector(order[i]), n);
+            }
+            kept[p] = v[m];
+            v = kept;
+            for (double[] row : t) {
+                Arrays.fill(row, 0);
+            }
+            for (int i = 0; i < p; i++) {
+                t[i][i] = theta[order[i]];
+            }
+            j = p;
+        }
+    }
+
+    /**
+     * Finds the top k eigenpairs with the default tolerance.
+     *
+     * @param matrix The Matrix; symmetric unless k = 1.
+     * @param k      The number of eigenpairs required.
+     * @return The eigenpairs of largest magnitude.
+     * @see #power(Matrix, int, double, int)
+     */
+    public static PartialEigen power(Matrix matrix, int k) {
+        return power(matrix, k, DEFAULT_TOLERANCE, DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Finds the top k eigenpairs by block power iteration. The block is slightly
+     * larger than k, and is orthonormalized and rotated towards the Ritz vectors
+     * after every multiplication. Convergence depends on the gap between the k-th
+     * and the next eigenvalue in magnitude, and may be slow.
+     *
+     * @param matrix     The Matrix; it must be symmetric unless k = 1.
+     * @param k          The number of eigenpairs required.
+     * @param tolerance  The relative tolerance of the residuals.
+     * @param iterations The maximum number of iterations.
+     * @return The eigenpairs of largest magnitude.
+     * @throws IllegalArgumentException If the arguments are out of range.
+     * @throws ArithmeticException      If the iteration does not converge.
+     */
+    public static PartialEigen power(Matrix matrix, int k, double tolerance, int iterations) {
+        checkArguments(matrix, k, tolerance, iterations);
+        final boolean symmetric = matrix.isSymmetric();
+        if (!symmetric && k > 1) {
+            throw new IllegalArgumentException(
+                    "Only one eigenpair can be found for an unsymmetric Matrix.");
+        }
+        final DoubleOperator operator = DoubleOperator.of(matrix);
+        final int n = operator.size();
+        final int b = symmetric ? Math.min(n, k + Math.max(2, k / 2)) : 1;
+        final Random random = new Random(SEED);
+
+        double[][] q = new double[b][];
+        for (int i = 0; i < b; i++) {
+            q[i] = random(n, random);
+            orthogonalize(q[i], q, i);
+            normalize(q[i]);
+        }
+        double[][] z = new double[b][n];
+        for (int iteration = 1; ; iteration++) {
+            for (int i = 0; i < b; i++) {
+                operator.multiply(q[i], z[i]);
+            }
+            // Rayleigh-Ritz: the projection Q'AQ and its eigenpairs
+            double[][] h = new double[b][b];
+            for (int i = 0; i < b; i++) {
+                for (int l = 0; l < b; l++) {
+                    h[i][l] = dot(q[i], z[l]);
+                }
+            }
+            EigenDecompose projection = new EigenDecompose(h, symmetric);
+            double[] theta = projection.getRealEigenvalues();
+            Integer[] order = byMagnitude(theta);
+            double largest = Math.abs(theta[order[0]]);
+            double[][] y = new double[b][];
+            double[][] ay = new double[b][];
+            boolean converged = true;
+            for (int i = 0; i < b; i++) {
+                double[] s = symmetric ? projection.getEigenvector(order[i]) : new double[]{1};
+                y[i] = combine(q, s, n);
+                ay[i] = combine(z, s, n);
+                if (i < k) {
+                    double residual = 0;
+                    for (int l = 0; l < n; l++) {
+                        double r = ay[i][l] - theta[order[i]] * y[i][l];
+                        residual += r * r;
+                    }
+                    converged &= Math.sqrt(residual) <= tolerance * largest;
+                }
+            }
+            if (converged) {
+                double[] values = new double[k];
+                double[][] vectors = new double[k][];
+                for (int i = 0; i < k; i++) {
+                    values[i] = theta[order[i]];
+                    vectors[i] = y[i];
+                }
+                return new PartialEigen(values, vectors, iteration);
+            }
+            if (iteration == iterations) {
+                throw new ArithmeticException("The power iteration did not converge.");
+            }
+            // The next block is A times the Ritz vectors, orthonormalized
+            for (int i = 0; i < b; i++) {
+                q[i] = ay[i];
+                orthogonalize(q[i], q, i);
+                if (norm(q[i]) == 0) {
+                    q[i] = random(n, random);
+                    orthogonalize(q[i], q, i);
+                }
+                normalize(q[i]);
+            }
+        }
+    }
+
+    private static void checkArguments(Matrix matrix, int k, double tolerance, int iterations) {
+        if (!matrix.isSquare()) {
+            throw new IllegalArgumentException("Only square matrices have eigenvalues.");
+        }
+        if (k <= 0 || k > matrix.getRows()) {
+            throw new IllegalArgumentException("The number of eigenpairs is out of range.");
+        }
+        if (!(tolerance > 0) || iterations <= 0) {
+            throw new IllegalArgumentException("Tolerance and iterations must be positive.");
+        }
+    }
+
+    /**
+     * @return The indices of the values, by decreasing magnitude.
+     */
+    private static Integer[] byMagnitude(double[] values) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> -Math.abs(values[i])));
+        return order;
+    }
+
+    /**
+     * Removes the components along the first count (orthonormal) rows of basis
+     * from w. Classical Gram-Schmidt is applied twice, which is enough to keep the
+     * basis orthogonal to working precision.
+     *
+     * @return The coefficients that were removed.
+     */
+    private static double[] orthogonalize(double[] w, double[][] basis, int count) {
+        double[] h = new double[count];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < count; i++) {
+                double c = dot(basis[i], w);
+                h[i] += c;
+                double[] u = basis[i];
+                for (int l = 0; l < w.length; l++) {
+                    w[l] -= c * u[l];
+                }
+            }
+        }
+        return h;
+    }
+
+    /**
+     * @return The linear combination of the first rows of basis with the given
+     * coefficients.
+     */
+    private static double[] combine(double[][] basis, double[] coefficients, int n) {
+        double[] x = new double[n];
+        for (int i = 0; i < coefficients.length; i++) {
+            double c = coefficients[i];
+            double[] u = basis[i];
+            for (int l = 0; l < n; l++) {
+                x[l] += c * u[l];
+            }
+        }
+        return x;
+    }
+
+    private static double[][] copy(double[][] a, int size) {
+        double[][] c = new double[size][];
+        for (int i = 0; i < size; i++) {
+            c[i] = Arrays.copyOf(a[i], size);
+        }
+        return c;
+    }
+
+    private static double[] random(int n, Random random) {
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextGaussian();
+        }
+        return x;
+    }
+
+    private static double dot(double[] x, double[] y) {
+        double sum = 0;
+        for (int i = 0; i < x.length; i++) {
+            sum += x[i] * y[i];
+        }
+        return sum;
+    }
+
+    private static double norm(double[] x) {
+        return Math.sqrt(dot(x, x));
+    }
+
+    private static void normalize(double[] x) {
+        double norm = norm(x);
+        if (norm > 0) {
+            for (int i = 0; i < x.length; i++) {
+                x[i] /= norm;
+            }
+        }
+    }
+}
@@ -2,13 +2,14 @@ package astrobleme;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.MathContext;
 
 /**
  * An immutable, arbitrary-precision Rational class for precise, numerically stable
  * calculations.
  *
  * @author Subhomoy Haldar
- * @version 2017.01.25
+ * @version 2017.02.10
  */
 public class Rational implements Comparable<Rational> {
     /*
@@ -18,6 +19,11 @@ public class Rational implements Comparable<Rational> {
     public static final Rational ONE = new Rational(1);
     public static final Rational HALF = new Rational(1, 2);
 
+    // A generous bound on the relative error of a quotient of two rounded doubles
+    private static final double DOUBLE_ERROR = 0x1p-48;
+    // Keeps both parts, and hence the quotient, well within the normal range
+    private static final int DOUBLE_BITS = 1000;
+
     private final BigInteger num;
     private final BigInteger den;
 
@@ -100,6 +106,14 @@ public class Rational implements Comparable<Rational> {
         den = d.divide(gcd);
     }
 
+    /**
+     * Wraps a numerator and denominator that are already known to be in lowest
+     * terms, with a positive denominator, skipping all verification.
+     */
+    static Rational trusted(final long numerator, final long denominator) {
+        return new Rational(BigInteger.valueOf(numerator), BigInteger.valueOf(denominator), false);
+    }
+
     /**
      * Creates a new Rational from a double. For preserving as much accuracy as
      * possible, the value is converted to a String and then processed. In fact,
@@ -117,7 +131,8 @@ public class Rational implements Comparable<Rational> {
      * with decimal points accurately.
      *
      * @param fraction The String to parse.
-     * @throws NumberFormatException If the String is not in the proper format.
+     * @throws NumberFormatException If the String is not in the proper format, or
+     *                               has a zero denominator.
      */
     public Rational(String fraction) throws NumberFormatException {
         BigInteger n, d;
@@ -127,12 +142,20 @@ public class Rational implements Comparable<Rational> {
         if (pos > -1) {
             n = new BigInteger(fraction.substring(0, pos));
             d = new BigInteger(fraction.substring(pos + 1));
+            if (d.signum() == 0) {
+                throw new NumberFormatException("Denominator must be non-zero.");
+            }
+            // Ensure that only the numerator has the sign, as the arithmetic relies on it
+            if (d.signum() < 0) {
+                n = n.negate();
+                d = d.negate();
+            }
         } else {
             // Use BigDecimal to generate our numerator and denominator.
             BigDecimal decimal = new BigDecimal(fraction);
             n = decimal.unscaledValue();
             int scale = decimal.scale();
-            BigInteger power = BigInteger.TEN.pow(scale);
+            BigInteger power = BigInteger.TEN.pow(Math.abs(scale));
             if (scale < 0) {
                 n = n.multiply(power);
                 d = BigInteger.ONE;
@@ -151,6 +174,12 @@ public class Rational implements Comparable<Rational> {
      * @return The sum of the two rationals.
      */
     public Rational add(Rational term) {
+        if (term.isZero()) {
+            return this;
+        }
+        if (isZero()) {
+            return term;
+        }
         BigInteger a = this.num;
         BigInteger b = this.den;
         BigInteger c = term.num;
@@ -161,7 +190,7 @@ public class Rational implements Comparable<Rational> {
             // Knuth argues that this occurs approximately 61% of the time.
             BigInteger num = a.multiply(d).add(b.multiply(c));
             BigInteger den = b.multiply(d);
-            return new Rational(num, den);
+            return reduced(num, den);
         } else {
             BigInteger common = b.divide(d1);
             BigInteger t = a.multiply(d.divide(d1)).add(common.multiply(c));
@@ -170,7 +199,7 @@ public class Rational implements Comparable<Rational> {
             BigInteger num = t.divide(d2);
             BigInteger den = common.multiply(d.divide(d2));
 
-            return new Rational(num, den);
+            return reduced(num, den);
         }
     }
 
@@ -179,6 +208,9 @@ public class Rational implements Comparable<Rational> {
      * @return The product of the two Rationals.
      */
     public Rational multiply(Rational term) {
+        if (isZero() || term.isZero()) {
+            return ZERO;
+        }
         BigInteger a = this.num;
         BigInteger b = this.den;
         BigInteger c = term.num;
@@ -190,7 +222,15 @@ public class Rational implements Comparable<Rational> {
         BigInteger num = a.divide(d1).multiply(c.divide(d2));
         BigInteger den = b.divide(d2).multiply(d.divide(d1));
 
-        return new Rational(num, den);
+        return reduced(num, den);
+    }
+
+    /**
+     * Wraps the result of an operation that is already known to be in lowest terms
+     * (with a positive denominator), so the gcd need not be computed again.
+     */
+    private static Rational reduced(BigInteger num, BigInteger den) {
+        return num.signum() == 0 ? ZERO : new Rational(num, den, false);
     }
 
     /**
@@ -209,7 +249,10 @@ public class Rational implements Comparable<Rational> {
         if (isZero()) {
             throw new ArithmeticException("Zero has no reciprocal.");
         }
-        return new Rational(den, num, false);
+        // Keep the sign on the numerator
+        return num.signum() < 0
+                ? new Rational(den.negate(), num.negate(), false)
+                : new Rational(den, num, false);
     }
 
     /**
@@ -269,8 +312,33 @@ public class Rational implements Comparable<Rational> {
      * @return {@code true} if this is within tolerance of fraction.
      */
     public boolean isApproximately(final double fraction, final double tolerance) {
-        double value = num.doubleValue() / den.doubleValue();
-        return Math.abs(fraction - value) <= tolerance;
+        return Math.abs(fraction - doubleValue()) <= tolerance;
+    }
+
+    /**
+     * @return The numerator, which carries the sign of this Rational.
+     */
+    public BigInteger getNumerator() {
+        return num;
+    }
+
+    /**
+     * @return The (always positive) denominator.
+     */
+    public BigInteger getDenominator() {
+        return den;
+    }
+
+    /**
+     * @return The double closest to this Rational (subject to rounding).
+     */
+    public double doubleValue() {
+        if (num.bitLength() < Double.MAX_EXPONENT && den.bitLength() < Double.MAX_EXPONENT) {
+            return num.doubleValue() / den.doubleValue();
+        }
+        // Either part would overflow on its own, so divide first
+        return new BigDecimal(num).divide(new BigDecimal(den), MathContext.DECIMAL64)
+                .doubleValue();
     }
 
     /**
@@ -280,6 +348,22 @@ public class Rational implements Comparable<Rational> {
         return num.signum();
     }
 
+    /**
+     * @param exponent The power to raise this Rational to; may be negative.
+     * @return This Rational raised to the given power.
+     * @throws ArithmeticException If a negative power of zero is required.
+     */
+    public Rational pow(int exponent) {
+        if (exponent < 0) {
+            // Guard against overflow on negation
+            return exponent == Integer.MIN_VALUE
+                    ? reciprocal().pow(Integer.MAX_VALUE).divide(this)
+                    : reciprocal().pow(-exponent);
+        }
+        // Powers of a reduced fraction remain reduced
+        return new Rational(num.pow(exponent), den.pow(exponent), false);
+    }
+
     /**
      * @return The absolute value of this Rational.
      */
@@ -294,11 +378,79 @@ public class Rational implements Comparable<Rational> {
      */
     @Override
     public int compareTo(Rational term) {
+        // Cheap checks first; the cross-multiplication is the last resort.
+        int sign = num.signum();
+        if (sign != term.num.signum()) {
+            return sign < term.num.signum() ? -1 : 1;
+        }
+        if (sign == 0) {
+            return 0;
+        }
+        if (den.equals(term.den)) {
+            return num.compareTo(term.num);
+        }
+        // |num / den| lies in (2^(e - 1), 2^(e + 1)) where e is the difference of
+        // the bit lengths, so magnitudes at least two powers apart are decided.
+        int e1 = num.bitLength() - den.bitLength();
+        int e2 = term.num.bitLength() - term.den.bitLength();
+        if (e1 - e2 >= 2) {
+            return sign;
+        }
+        if (e2 - e1 >= 2) {
+            return -sign;
+        }
+        if (fitsDouble() && term.fitsDouble()) {
+            double x = num.doubleValue() / den.doubleValue();
+            double y = term.num.doubleValue() / term.den.doubleValue();
+            // Each quotient is off by at most a few ulps
+            double error = (Math.abs(x) + Math.abs(y)) * DOUBLE_ERROR;
+            if (x - y > error) {
+                return 1;
+            }
+            if (y - x > error) {
+                return -1;
+            }
+        }
         BigInteger x = this.num.multiply(term.den);
         BigInteger y = term.num.multiply(this.den);
         return x.compareTo(y);
     }
 
+    /**
+     * Checks if this Rational is within the given tolerance of another, i.e.
+     * whether |this - other| &le; tolerance. Unlike computing the difference, this
+     * usually decides the question with doubles, without allocating anything, and
+     * falls back to exact arithmetic only for the borderline cases.
+     *
+     * @param other     The Rational to compare with.
+     * @param tolerance The allowed deviation.
+     * @return {@code true} if this is within tolerance of other.
+     */
+    public boolean isApproximately(final Rational other, final Rational tolerance) {
+        if (num.equals(other.num) && den.equals(other.den)) {
+            return tolerance.signum() >= 0;
+        }
+        if (fitsDouble() && other.fitsDouble() && tolerance.fitsDouble()) {
+            double x = num.doubleValue() / den.doubleValue();
+            double y = other.num.doubleValue() / other.den.doubleValue();
+            double t = tolerance.num.doubleValue() / tolerance.den.doubleValue();
+            double difference = Math.abs(x - y);
+            double error = (Math.abs(x) + Math.abs(y)) * DOUBLE_ERROR;
+            double slack = Math.abs(t) * DOUBLE_ERROR;
+            if (difference + error < t - slack) {
+                return true;
+            }
+            if (difference - error > t + slack) {
+                return false;
+            }
+        }
+        return subtract(other).abs().compareTo(tolerance) <= 0;
+    }
+
+    private boolean fitsDouble() {
+        return num.bitLength() < DOUBLE_BITS && den.bitLength() < DOUBLE_BITS;
+    }
+
     @Override
     public boolean equals(Object other) {
         if (!(other instanceof Rational)) {
@@ -308,6 +460,11 @@ public class Rational implements Comparable<Rational> {
         return num.equals(r.num) && den.equals(r.den);
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * num.hashCode() + den.hashCode();
+    }
+
     @Override
     public String toString() {
         String representation = num.toString();
@@ -0,0 +1,242 @@
+package astrobleme;
+
+import java.math.BigInteger;
+
+/**
+ * A mutable builder for sums of Rationals and of products of Rationals, as found in
+ * dot products and substitution loops. The running total is kept as an
+ * unnormalized fraction: no gcd is computed while terms are added, only when the
+ * result is asked for, or when the denominator grows past a threshold (in which
+ * case the threshold is raised if reducing did not bring it back down).
+ * <p>
+ * While all the terms are small, the total is instead kept in a pair of longs over
+ * the least common denominator, so that no BigIntegers are created at all. It
+ * moves to BigIntegers once a long would overflow.
+ * <p>
+ * Instances are not thread-safe. They can be reset and reused, as the ones held
+ * by a {@link Workspace} are.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.08
+ */
+public final class RationalAccumulator {
+    private static final int INITIAL_THRESHOLD = 512;
+    // Terms whose parts fit in this many bits are added as longs
+    private static final int SMALL_BITS = 62;
+
+    // The total while it is small, in which case the BigIntegers are unused
+    private boolean small = true;
+    private long n = 0;
+    private long d = 1;
+
+    private BigInteger num = BigInteger.ZERO;
+    private BigInteger den = BigInteger.ONE;
+    private int threshold = INITIAL_THRESHOLD;
+
+    /**
+     * Creates an accumulator holding zero.
+     */
+    public RationalAccumulator() {
+    }
+
+    /**
+     * Creates an accumulator holding the given value.
+     *
+     * @param initial The starting value.
+     */
+    public RationalAccumulator(final Rational initial) {
+        add(initial);
+    }
+
+    /**
+     * @param term The Rational to add.
+     * @return This accumulator.
+     */
+    public RationalAccumulator add(Rational term) {
+        if (small && isSmall(term, Rational.ONE) && accumulateSmall(term.getNumerator().longValue(),
+                term.getDenominator().longValue())) {
+            return this;
+        }
+        return accumulate(term.getNumerator(), term.getDenominator());
+    }
+
+    /**
+     * @param term The Rational to subtract.
+     * @return This accumulator.
+     */
+    public RationalAccumulator subtract(Rational term) {
+        if (small && isSmall(term, Rational.ONE) && accumulateSmall(-term.getNumerator().longValue(),
+                term.getDenominator().longValue())) {
+            return this;
+        }
+        return accumulate(term.getNumerator().negate(), term.getDenominator());
+    }
+
+    /**
+     * Adds the product xy, without reducing it first.
+     *
+     * @param x The first factor.
+     * @param y The second factor.
+     * @return This accumulator.
+     */
+    public RationalAccumulator addProduct(Rational x, Rational y) {
+        if (x.isZero() || y.isZero()) {
+            return this;
+        }
+        if (small && isSmall(x, y) && accumulateSmall(
+                x.getNumerator().longValue() * y.getNumerator().longValue(),
+                x.getDenominator().longValue() * y.getDenominator().longValue())) {
+            return this;
+        }
+        return accumulate(x.getNumerator().multiply(y.getNumerator()),
+                x.getDenominator().multiply(y.getDenominator()));
+    }
+
+    /**
+     * Subtracts the product xy, without reducing it first.
+     *
+     * @param x The first factor.
+     * @param y The second factor.
+     * @return This accumulator.
+     */
+    public RationalAccumulator subtractProduct(Rational x, Rational y) {
+        if (x.isZero() || y.isZero()) {
+            return this;
+        }
+        if (small && isSmall(x, y) && accumulateSmall(
+                -x.getNumerator().longValue() * y.getNumerator().longValue(),
+                x.getDenominator().longValue() * y.getDenominator().longValue())) {
+            return this;
+        }
+        return accumulate(x.getNumerator().multiply(y.getNumerator()).negate(),
+                x.getDenominator().multiply(y.getDenominator()));
+    }
+
+    /**
+     * @return {@code true} if both parts of the product xy fit in a long.
+     */
+    private static boolean isSmall(Rational x, Rational y) {
+        return x.getNumerator().bitLength() + y.getNumerator().bitLength() <= SMALL_BITS
+                && x.getDenominator().bitLength() + y.getDenominator().bitLength() <= SMALL_BITS;
+    }
+
+    /**
+     * Adds tn/td to the small total. The common denominator is the least common
+     * multiple, which keeps the parts as small as possible.
+     *
+     * @return {@code false} if a long would overflow, in which case the total has
+     * been moved to the BigIntegers and the term still has to be added.
+     */
+    private boolean accumulateSmall(long tn, long td) {
+        try {
+            if (td == d) {
+                n = Math.addExact(n, tn);
+            } else {
+                long g = gcd(d, td);
+                long factor = td / g;
+                long sum = Math.addExact(Math.multiplyExact(n, factor),
+                        Math.multiplyExact(tn, d / g));
+                d = Math.multiplyExact(d, factor);
+                n = sum;
+            }
+            return true;
+        } catch (ArithmeticException overflow) {
+            small = false;
+            num = BigInteger.valueOf(n);
+            den = BigInteger.valueOf(d);
+            return false;
+        }
+    }
+
+    /**
+     * @return The gcd of a and the positive b.
+     */
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return Math.abs(a);
+    }
+
+    private RationalAccumulator accumulate(BigInteger n, BigInteger d) {
+        if (n.signum() == 0) {
+            return this;
+        }
+        if (small) {
+            // A term too large for the longs
+            small = false;
+            num = BigInteger.valueOf(this.n);
+            den = BigInteger.valueOf(this.d);
+        }
+        if (d.equals(den)) {
+            num = num.add(n);
+        } else if (d.equals(BigInteger.ONE)) {
+            num = num.add(n.multiply(den));
+        } else if (den.equals(BigInteger.ONE)) {
+            num = num.multiply(d).add(n);
+            den = d;
+        } else {
+            num = num.multiply(d).add(n.multiply(den));
+            den = den.multiply(d);
+        }
+        if (den.bitLength() > threshold) {
+            normalize();
+            if (den.bitLength() > threshold / 2) {
+                threshold = den.bitLength() * 2;
+            }
+        }
+        return this;
+    }
+
+    private void normalize() {
+        BigInteger gcd = num.gcd(den);
+        if (num.signum() == 0) {
+            den = BigInteger.ONE;
+        } else if (!gcd.equals(BigInteger.ONE)) {
+            num = num.divide(gcd);
+            den = den.divide(gcd);
+        }
+    }
+
+    /**
+     * Resets the accumulator to zero, so that it can be reused.
+     *
+     * @return This accumulator.
+     */
+    public RationalAccumulator reset() {
+        small = true;
+        n = 0;
+        d = 1;
+        num = BigInteger.ZERO;
+        den = BigInteger.ONE;
+        threshold = INITIAL_THRESHOLD;
+        return this;
+    }
+
+    /**
+     * @return The accumulated value in lowest terms.
+     */
+    public Rational toRational() {
+        if (small) {
+            if (n == 0) {
+                return Rational.ZERO;
+            }
+            long g = gcd(n, d);
+            return Rational.trusted(n / g, d / g);
+        }
+        if (num.signum() == 0) {
+            return Rational.ZERO;
+        }
+        if (den.equals(BigInteger.ONE)) {
+            return new Rational(num);
+        }
+        return new Rational(num, den);
+    }
+
+    @Override
+    public String toString() {
+        return toRational().toString();
+    }
+}
@@ -0,0 +1,367 @@
+package astrobleme;
+
+import java.util.Arrays;
+
+/**
+ * A block of Rationals in structure-of-arrays form: the numerators and
+ * denominators are kept in two parallel, flat (row-major) long arrays. As long as
+ * the values fit, arithmetic is carried out on primitives in contiguous memory,
+ * with none of the pointer chasing and allocation of {@link Rational}.
+ * <p>
+ * Every operation checks for overflow. An element whose value does not fit is
+ * spilled to a separate array of Rationals (allocated on the first overflow), and
+ * from then on that element alone is handled with BigIntegers.
+ * <p>
+ * The long values are kept normalized just like Rational: the denominator is
+ * positive and coprime to the numerator, and zero is 0/1.
+ * <p>
+ * A block is not modified once it has been built, so a {@link Matrix} keeps the
+ * one it was converted to (or computed in), and later operations reuse it.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+final class RationalBlock {
+    /**
+     * Marks a Matrix whose elements are known not to fit.
+     */
+    static final RationalBlock NONE = new RationalBlock(0, 0);
+
+    final int rows;
+    final int cols;
+    private final long[] num;
+    private final long[] den;
+    // A non-null element here overrides the long values at the same index
+    private Rational[] big;
+
+    /**
+     * Creates a block of zeroes.
+     */
+    RationalBlock(final int rows, final int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        num = new long[rows * cols];
+        den = new long[rows * cols];
+        Arrays.fill(den, 1);
+    }
+
+    /**
+     * @param a The array to convert.
+     * @return The block with the same elements, or {@code null} if any one of them
+     * does not fit in longs.
+     */
+    static RationalBlock of(Rational[][] a) {
+        RationalBlock block = new RationalBlock(a.length, a[0].length);
+        int index = 0;
+        for (Rational[] row : a) {
+            for (Rational element : row) {
+                if (!fits(element)) {
+                    return null;
+                }
+                block.num[index] = element.getNumerator().longValue();
+                block.den[index] = element.getDenominator().longValue();
+                index++;
+            }
+        }
+        return block;
+    }
+
+    /**
+     * @param m The Matrix to convert, in any layout.
+     * @return The block with the same elements, or {@code null} if any one of them
+     * does not fit in longs.
+     */
+    static RationalBlock of(Matrix m) {
+        if (m.flat() == null) {
+            return of(m.array());
+        }
+        RationalBlock block = new RationalBlock(m.getRows(), m.getCols());
+        int index = 0;
+        for (int i = 0; i < block.rows; i++) {
+            for (int j = 0; j < block.cols; j++) {
+                Rational element = m.element(i, j);
+                if (!fits(element)) {
+                    return null;
+                }
+                block.num[index] = element.getNumerator().longValue();
+                block.den[index] = element.getDenominator().longValue();
+                index++;
+            }
+        }
+        return block;
+    }
+
+    private static boolean fits(Rational r) {
+        // Keeps both parts below 2^62 in magnitude, which also excludes
+        // Long.MIN_VALUE, the one long that cannot be negated
+        return r.getNumerator().bitLength() < Long.SIZE - 1
+                && r.getDenominator().bitLength() < Long.SIZE - 1;
+    }
+
+    /**
+     * @return The element at the given (flat) index.
+     */
+    Rational get(int index) {
+        if (big != null && big[index] != null) {
+            return big[index];
+        }
+        return Rational.trusted(num[index], den[index]);
+    }
+
+    /**
+     * Stores the element at the given index, in the longs if it fits.
+     */
+    void set(int index, Rational r) {
+        if (fits(r)) {
+            num[index] = r.getNumerator().longValue();
+            den[index] = r.getDenominator().longValue();
+            if (big != null) {
+                big[index] = null;
+            }
+        } else {
+            spill(index, r);
+        }
+    }
+
+    private void spill(int index, Rational r) {
+        if (big == null) {
+            big = new Rational[num.length];
+        }
+        big[index] = r;
+    }
+
+    private boolean isSpilled(int index) {
+        return big != null && big[index] != null;
+    }
+
+    /**
+     * @return {@code true} if any element has been spilled to a Rational.
+     */
+    boolean hasSpilled() {
+        if (big != null) {
+            for (Rational r : big) {
+                if (r != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The elements as a (jagged) array of Rationals.
+     */
+    Rational[][] toArray() {
+        Rational[][] a = new Rational[rows][cols];
+        int index = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                a[i][j] = get(index++);
+            }
+        }
+        return a;
+    }
+
+    /**
+     * @return The elements as a flat, row-major array of Rationals.
+     */
+    Rational[] toFlatArray() {
+        Rational[] a = new Rational[num.length];
+        for (int index = 0; index < a.length; index++) {
+            a[index] = get(index);
+        }
+        return a;
+    }
+
+    /**
+     * @return The element-wise sum (or difference) of this and the given block.
+     */
+    RationalBlock add(RationalBlock b, boolean subtract) {
+        RationalBlock c = new RationalBlock(rows, cols);
+        long[] term = new long[2];
+        for (int index = 0; index < num.length; index++) {
+            if (isSpilled(index) || b.isSpilled(index)
+                    || !setSum(c, index, num[index], den[index],
+                    subtract ? -b.num[index] : b.num[index], b.den[index], term)) {
+                Rational y = b.get(index);
+                c.spill(index, get(index).add(subtract ? y.negate() : y));
+            }
+        }
+        return c;
+    }
+
+    private static boolean setSum(RationalBlock c, int index, long a, long b,
+                                  long n, long d, long[] term) {
+        c.num[index] = a;
+        c.den[index] = b;
+        term[0] = n;
+        term[1] = d;
+        return accumulate(c.num, c.den, index, term);
+    }
+
+    /**
+     * Computes the product of this and the given block. Every row of the result is
+     * built by adding scaled rows of b to it, so all the inner loops run over
+     * contiguous memory.
+     *
+     * @return The matrix product of the two blocks.
+     */
+    RationalBlock multiply(RationalBlock b, Checkpoint checkpoint) {
+        final int n = b.cols;
+        RationalBlock c = new RationalBlock(rows, n);
+        long[] term = new long[2];
+        // Accumulators of the current row that have overflowed
+        Rational[] overflow = new Rational[n];
+        for (int i = 0; i < rows; i++) {
+            checkpoint.check();
+            boolean overflowed = false;
+            for (int k = 0; k < cols; k++) {
+                int ik = i * cols + k;
+                boolean spilled = isSpilled(ik);
+                if (!spilled && num[ik] == 0) {
+                    continue;
+                }
+                for (int j = 0, kj = k * n, ij = i * n; j < n; j++, kj++, ij++) {
+                    if (overflow[j] == null && !spilled && !b.isSpilled(kj)
+                            && product(num[ik], den[ik], b.num[kj], b.den[kj], term)
+                            && accumulate(c.num, c.den, ij, term)) {
+                        continue;
+                    }
+                    Rational sum = overflow[j] == null ? c.get(ij) : overflow[j];
+                    overflow[j] = sum.add(get(ik).multiply(b.get(kj)));
+                    overflowed = true;
+                }
+            }
+            if (overflowed) {
+                for (int j = 0; j < n; j++) {
+                    if (overflow[j] != null) {
+                        c.set(i * n + j, overflow[j]);
+                        overflow[j] = null;
+                    }
+                }
+            }
+        }
+        return c;
+    }
+
+    /**
+     * @return The dot product of row i of this block and column j of b.
+     */
+    Rational dot(int i, RationalBlock b, int j) {
+        return dot(i, b, j, 0, cols);
+    }
+
+    /**
+     * Computes the dot product of row i of this block and column j of b, over the
+     * indices [from, to) only. The sum is kept in longs, and moves to a
+     * {@link RationalAccumulator} with the remaining terms if it overflows.
+     *
+     * @return The partial dot product; zero if the range is empty.
+     */
+    Rational dot(int i, RationalBlock b, int j, int from, int to) {
+        long[] sumNum = {0};
+        long[] sumDen = {1};
+        long[] term = new long[2];
+        for (int k = from, ik = i * cols + from, kj = from * b.cols + j; k < to;
+             k++, ik++, kj += b.cols) {
+            if (!isSpilled(ik) && !b.isSpilled(kj)
+                    && product(num[ik], den[ik], b.num[kj], b.den[kj], term)
+                    && accumulate(sumNum, sumDen, 0, term)) {
+                continue;
+            }
+            RationalAccumulator sum = new RationalAccumulator(
+                    Rational.trusted(sumNum[0], sumDen[0]));
+            for (; k < to; k++, ik++, kj += b.cols) {
+                sum.addProduct(get(ik), b.get(kj));
+            }
+            return sum.toRational();
+        }
+        return Rational.trusted(sumNum[0], sumDen[0]);
+    }
+
+    /**
+     * Stores the normalized product (a/b)(c/d) in the first two elements of result.
+     *
+     * @return {@code false} if it overflows.
+     */
+    private static boolean product(long a, long b, long c, long d, long[] result) {
+        if (a == 0 || c == 0) {
+            result[0] = 0;
+            result[1] = 1;
+            return true;
+        }
+        long g1 = gcd(Math.abs(a), d);
+        long g2 = gcd(b, Math.abs(c));
+        try {
+            long n = Math.multiplyExact(a / g1, c / g2);
+            if (n == Long.MIN_VALUE) {
+                return false;
+            }
+            result[0] = n;
+            result[1] = Math.multiplyExact(b / g2, d / g1);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Adds the fraction held in the first two elements of term to the element at
+     * the given index, following the same steps as {@link Rational#add(Rational)}.
+     *
+     * @return {@code false} (leaving the element unchanged) if it overflows.
+     */
+    private static boolean accumulate(long[] num, long[] den, int index, long[] term) {
+        long a = num[index];
+        long b = den[index];
+        long c = term[0];
+        long d = term[1];
+        try {
+            long n, m;
+            long g = gcd(b, d);
+            if (g == 1) {
+                n = Math.addExact(Math.multiplyExact(a, d), Math.multiplyExact(b, c));
+                m = Math.multiplyExact(b, d);
+            } else {
+                long common = b / g;
+                long t = Math.addExact(Math.multiplyExact(a, d / g), Math.multiplyExact(common, c));
+                if (t == Long.MIN_VALUE) {
+                    return false;
+                }
+                long g2 = gcd(Math.abs(t), g);
+                n = t / g2;
+                m = Math.multiplyExact(common, d / g2);
+            }
+            if (n == Long.MIN_VALUE) {
+                return false;
+            }
+            num[index] = n;
+            den[index] = n == 0 ? 1 : m;
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The GCD of two non-negative longs; gcd(0, x) = x.
+     */
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < num.length; index++) {
+            builder.append(index % cols == 0 ? (index == 0 ? "[" : "]\n[") : ", ");
+            builder.append(get(index));
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,123 @@
+package astrobleme;
+
+import org.testng.annotations.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class RationalTest {
+
+    private static final int COUNT = 1000;
+    private static final Random RANDOM = new Random();
+
+    @Test
+    public void testCompareTo() throws Exception {
+        for (int i = 0; i < COUNT; i++) {
+            Rational x = randomRational();
+            Rational y = RANDOM.nextBoolean() ? randomRational() : nudge(x);
+            assertEquals(x.compareTo(y), crossCompare(x, y));
+            assertEquals(y.compareTo(x), crossCompare(y, x));
+            assertEquals(x.compareTo(x), 0);
+        }
+    }
+
+    @Test
+    public void testIsApproximately() throws Exception {
+        for (int i = 0; i < COUNT; i++) {
+            Rational x = randomRational();
+            Rational y = RANDOM.nextBoolean() ? randomRational() : nudge(x);
+            Rational tolerance = RANDOM.nextBoolean()
+                    ? x.subtract(y).abs()
+                    : randomRational().abs();
+            boolean expected = x.subtract(y).abs().compareTo(tolerance) <= 0;
+            assertEquals(x.isApproximately(y, tolerance), expected);
+        }
+        assertTrue(Rational.HALF.isApproximately(Rational.HALF, Rational.ZERO));
+        assertFalse(Rational.HALF.isApproximately(Rational.ONE, Rational.ZERO));
+    }
+
+    @Test
+    public void testAccumulator() throws Exception {
+        for (int i = 0; i < COUNT / 10; i++) {
+            RationalAccumulator accumulator = new RationalAccumulator();
+            Rational expected = Rational.ZERO;
+            // Long enough for the denominator to cross the threshold a few times
+            for (int k = 0; k < 50; k++) {
+                Rational x = randomRational();
+                Rational y = randomRational();
+                if (RANDOM.nextBoolean()) {
+                    accumulator.addProduct(x, y);
+                    expected = expected.add(x.multiply(y));
+                } else {
+                    accumulator.subtract(x);
+                    expected = expected.subtract(x);
+                }
+            }
+            Rational actual = accumulator.toRational();
+            assertEquals(actual, expected);
+            assertEquals(actual.getDenominator().signum(), 1);
+            assertEquals(accumulator.reset().toRational(), Rational.ZERO);
+        }
+    }
+
+    @Test
+    public void testLowestTerms() throws Exception {
+        for (int i = 0; i < COUNT; i++) {
+            Rational x = randomRational();
+            Rational y = randomRational();
+            if (x.isZero() || y.isZero()) {
+                continue;
+            }
+            for (Rational r : new Rational[]{x.add(y), x.subtract(y), x.multiply(y),
+                    x.divide(y), x.reciprocal()}) {
+                // The verifying constructor reduces and fixes the sign
+                Rational canonical = new Rational(r.getNumerator(), r.getDenominator());
+                assertEquals(r.getNumerator(), canonical.getNumerator());
+                assertEquals(r.getDenominator(), canonical.getDenominator());
+            }
+        }
+    }
+
+    @Test
+    public void testNegativeDenominatorString() throws Exception {
+        Rational x = new Rational("1/-2");
+        assertEquals(x.getNumerator(), BigInteger.ONE.negate());
+        assertEquals(x.getDenominator(), BigInteger.valueOf(2));
+        assertEquals(x, new Rational(-1, 2));
+        assertTrue(x.compareTo(Rational.ZERO) < 0);
+        assertEquals(x.add(new Rational("1/3")), new Rational(-1, 6));
+        assertEquals(x.multiply(new Rational("-4/-3")), new Rational(-2, 3));
+        assertEquals(new Rational("-6/-4"), new Rational(3, 2));
+    }
+
+    @Test(expectedExceptions = NumberFormatException.class)
+    public void testZeroDenominatorString() throws Exception {
+        new Rational("3/0");
+    }
+
+    private static int crossCompare(Rational x, Rational y) {
+        BigInteger a = x.getNumerator().multiply(y.getDenominator());
+        BigInteger b = y.getNumerator().multiply(x.getDenominator());
+        return a.compareTo(b);
+    }
+
+    /**
+     * @return A Rational that differs from the given one by a tiny amount (or not at all).
+     */
+    private static Rational nudge(Rational x) {
+        BigInteger den = BigInteger.ONE.shiftLeft(RANDOM.nextInt(200));
+        return x.add(new Rational(BigInteger.valueOf(RANDOM.nextInt(3) - 1), den));
+    }
+
+    private static Rational randomRational() {
+        BigInteger num = new BigInteger(RANDOM.nextInt(100) + 1, RANDOM);
+        BigInteger den = new BigInteger(RANDOM.nextInt(100) + 1, RANDOM).add(BigInteger.ONE);
+        return new Rational(RANDOM.nextBoolean() ? num : num.negate(), den);
+    }
+}
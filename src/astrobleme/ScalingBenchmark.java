@@ -0,0 +1,129 @@
+package astrobleme;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Measures how the throughput of the main operations on shared operands scales
+ * from one thread to many. Every thread repeats the operation on the same Matrix
+ * instances for a fixed time, and the first result of each thread is checked
+ * against one computed beforehand. For every operation a table of the throughput,
+ * the speedup over a single thread and the parallel efficiency is printed.
+ * <p>
+ * Usage: {@code java astrobleme.ScalingBenchmark [size [threads [seconds]]]}, where
+ * the defaults are 60, the number of processors and 2.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.07
+ */
+class ScalingBenchmark {
+    private final int threads;
+    private final long nanos;
+
+    private ScalingBenchmark(final int threads, final double seconds) {
+        this.threads = threads;
+        this.nanos = (long) (seconds * 1e9);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        int threads = args.length > 1
+                ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 2;
+        ScalingBenchmark benchmark = new ScalingBenchmark(threads, seconds);
+
+        Random random = new Random(size);
+        Matrix a = random(size, random).add(Matrix.identity(size).multiply(new Rational(10 * size)));
+        Matrix b = random(size, random);
+        Rational[] constants = b.array()[0];
+        LUPDecompose decomposition = new LUPDecompose(a);
+
+        System.out.printf("%d x %d, up to %d threads, %.1f s each%n", size, size, threads, seconds);
+        benchmark.run("multiply", () -> a.multiply(b));
+        benchmark.run("solve (shared LUPDecompose)", () -> decomposition.solve(constants));
+        benchmark.run("decompose and solve", () -> new LUPDecompose(a).solve(constants));
+        benchmark.run("solve (double refinement)", () -> AdaptiveSolver.solve(a, constants));
+    }
+
+    private <T> void run(String name, Supplier<T> operation) throws Exception {
+        T expected = operation.get();
+        // Warm up with all the threads, so that the single thread is not penalized
+        measure(threads, operation, expected);
+        System.out.printf("%n%s%n%8s %12s %8s %10s%n", name, "threads", "ops/s", "speedup", "efficiency");
+        double single = 0;
+        // Powers of two, and then the maximum
+        for (int t = 1; ; t = Math.min(2 * t, threads)) {
+            double throughput = measure(t, operation, expected);
+            if (t == 1) {
+                single = throughput;
+            }
+            double speedup = throughput / single;
+            System.out.printf("%8d %12.1f %8.2f %9.0f%%%n", t, throughput, speedup, 100 * speedup / t);
+            if (t == threads) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return The number of operations completed per second by all the threads.
+     */
+    private <T> double measure(int count, Supplier<T> operation, T expected)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong operations = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        Thread[] workers = new Thread[count];
+        for (int i = 0; i < count; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long deadline = System.nanoTime() + nanos;
+                long done = 0;
+                T first = operation.get();
+                if (!equal(first, expected)) {
+                    failures.incrementAndGet();
+                }
+                do {
+                    operation.get();
+                    done++;
+                } while (System.nanoTime() < deadline);
+                operations.addAndGet(done + 1);
+            });
+            workers[i].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        if (failures.get() > 0) {
+            throw new AssertionError(failures.get() + " threads computed a different result.");
+        }
+        return operations.get() / elapsed;
+    }
+
+    private static boolean equal(Object x, Object y) {
+        return x instanceof Object[] && y instanceof Object[]
+                ? Arrays.deepEquals((Object[]) x, (Object[]) y)
+                : x.equals(y);
+    }
+
+    private static Matrix random(int size, Random random) {
+        Rational[][] a = new Rational[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                a[i][j] = new Rational(random.nextInt(19) - 9, random.nextInt(4) + 1);
+            }
+        }
+        return new Matrix(a, false);
+    }
+}
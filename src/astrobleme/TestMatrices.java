@@ -0,0 +1,59 @@
+package astrobleme;
+
+import java.util.Random;
+
+/**
+ * Random operands shared by the tests. The elements are small fractions, so that
+ * exact products stay cheap.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+final class TestMatrices {
+    static final Random RANDOM = new Random();
+
+    private TestMatrices() {
+    }
+
+    /**
+     * @return A Matrix of fractions with numerators in [-9, 9] and denominators
+     * in [1, 4].
+     */
+    static Matrix randomMatrix(int rows, int cols) {
+        Rational[][] a = new Rational[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                a[i][j] = new Rational(RANDOM.nextInt(19) - 9, RANDOM.nextInt(4) + 1);
+            }
+        }
+        return new Matrix(a);
+    }
+
+    static Matrix randomMatrix(int size) {
+        return randomMatrix(size, size);
+    }
+
+    /**
+     * @return A random square Matrix with 10 * size on the diagonal, which makes it
+     * strictly diagonally dominant and hence non-singular.
+     */
+    static Matrix randomDominant(int size) {
+        Rational[][] a = randomMatrix(size).array();
+        for (int i = 0; i < size; i++) {
+            a[i][i] = new Rational(10 * size);
+        }
+        return new Matrix(a, false);
+    }
+
+    /**
+     * @return A vector of fractions with numerators in [-50, 50) and denominators
+     * in [1, 9].
+     */
+    static Rational[] randomVector(int size) {
+        Rational[] x = new Rational[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = new Rational(RANDOM.nextInt(100) - 50, RANDOM.nextInt(9) + 1);
+        }
+        return x;
+    }
+}
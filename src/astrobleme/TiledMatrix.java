@@ -0,0 +1,135 @@
+package astrobleme;
+
+/**
+ * An immutable Matrix that is partitioned into a grid of blocks (tiles) of a fixed
+ * size. Each block is an independent {@link Matrix}, so operations on a
+ * TiledMatrix can be split into many small block tasks which are scheduled by a
+ * {@link BlockScheduler}. The blocks in the last row and column of the grid may
+ * be smaller than the others.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.01.28
+ */
+public class TiledMatrix {
+    private final Matrix[][] blocks;
+    private final int blockSize;
+    private final int rows;
+    private final int cols;
+
+    /**
+     * Partitions the given Matrix into blocks.
+     *
+     * @param matrix    The Matrix to partition.
+     * @param blockSize The (positive) number of rows and columns in a block.
+     * @throws IllegalArgumentException If the block size is not positive.
+     */
+    public TiledMatrix(final Matrix matrix, final int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        this.blockSize = blockSize;
+        rows = matrix.getRows();
+        cols = matrix.getCols();
+        Rational[][] a = matrix.array();
+        blocks = new Matrix[blockCount(rows)][blockCount(cols)];
+        for (int bi = 0; bi < blocks.length; bi++) {
+            for (int bj = 0; bj < blocks[0].length; bj++) {
+                int r0 = bi * blockSize;
+                int c0 = bj * blockSize;
+                Rational[][] block = new Rational[Math.min(blockSize, rows - r0)]
+                        [Math.min(blockSize, cols - c0)];
+                for (int i = 0; i < block.length; i++) {
+                    System.arraycopy(a[r0 + i], c0, block[i], 0, block[i].length);
+                }
+                blocks[bi][bj] = new Matrix(block, false);
+            }
+        }
+    }
+
+    /**
+     * Wraps the given grid of blocks, which must be consistently sized.
+     */
+    TiledMatrix(final Matrix[][] blocks, final int blockSize, final int rows, final int cols) {
+        this.blocks = blocks;
+        this.blockSize = blockSize;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    private int blockCount(int length) {
+        return (length + blockSize - 1) / blockSize;
+    }
+
+    /**
+     * @param i The block row index.
+     * @param j The block column index.
+     * @return The block at (i, j) of the grid.
+     * @throws IllegalArgumentException If i or j is out of permitted range.
+     */
+    public Matrix getBlock(int i, int j) {
+        if (i < 0 || i >= blocks.length) {
+            throw new IllegalArgumentException("Invalid block row index; must be in [0, blockRows)");
+        }
+        if (j < 0 || j >= blocks[0].length) {
+            throw new IllegalArgumentException("Invalid block column index; must be in [0, blockCols)");
+        }
+        return blocks[i][j];
+    }
+
+    /**
+     * @return The number of rows in a full block.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return The number of rows of blocks.
+     */
+    public int getBlockRows() {
+        return blocks.length;
+    }
+
+    /**
+     * @return The number of columns of blocks.
+     */
+    public int getBlockCols() {
+        return blocks[0].length;
+    }
+
+    /**
+     * @return The number of rows of the whole matrix.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return The number of columns of the whole matrix.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return The blocks assembled back into a single Matrix.
+     */
+    public Matrix toMatrix() {
+        Rational[][] a = new Rational[rows][cols];
+        for (int bi = 0; bi < blocks.length; bi++) {
+            for (int bj = 0; bj < blocks[0].length; bj++) {
+                Rational[][] block = blocks[bi][bj].array();
+                for (int i = 0; i < block.length; i++) {
+                    System.arraycopy(block[i], 0, a[bi * blockSize + i], bj * blockSize,
+                            block[i].length);
+                }
+            }
+        }
+        return new Matrix(a, false);
+    }
+
+    @Override
+    public String toString() {
+        return toMatrix().toString();
+    }
+}
@@ -0,0 +1,65 @@
+package astrobleme;
+
+import org.testng.annotations.Test;
+
+import static astrobleme.TestMatrices.RANDOM;
+import static astrobleme.TestMatrices.randomMatrix;
+import static org.testng.Assert.*;
+
+/**
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public class TiledMatrixTest {
+
+    private static final int COUNT = 5;
+    private static final int LIMIT = 20;
+
+    @Test
+    public void testTiling() throws Exception {
+        for (int counter = 0; counter < COUNT; counter++) {
+            Matrix m = randomMatrix(RANDOM.nextInt(LIMIT) + 1, RANDOM.nextInt(LIMIT) + 1);
+            assertEquals(new TiledMatrix(m, RANDOM.nextInt(LIMIT) + 1).toMatrix(), m);
+        }
+    }
+
+    @Test
+    public void testAddAndMultiply() throws Exception {
+        BlockScheduler scheduler = new BlockScheduler();
+        for (int counter = 0; counter < COUNT; counter++) {
+            int rows = RANDOM.nextInt(LIMIT) + 1;
+            int cols = RANDOM.nextInt(LIMIT) + 1;
+            int blockSize = RANDOM.nextInt(5) + 1;
+            Matrix a = randomMatrix(rows, cols);
+            Matrix b = randomMatrix(rows, cols);
+            Matrix c = randomMatrix(cols, rows);
+            TiledMatrix ta = new TiledMatrix(a, blockSize);
+            assertEquals(scheduler.add(ta, new TiledMatrix(b, blockSize)).get().toMatrix(),
+                    a.add(b));
+            assertEquals(scheduler.multiply(ta, new TiledMatrix(c, blockSize)).get().toMatrix(),
+                    a.multiply(c));
+        }
+    }
+
+    @Test
+    public void testLU() throws Exception {
+        BlockScheduler scheduler = new BlockScheduler();
+        for (int counter = 0; counter < COUNT; counter++) {
+            int size = RANDOM.nextInt(LIMIT) + 1;
+            Matrix a = randomMatrix(size, size);
+            // Diagonal dominance ensures that no pivoting is needed
+            Matrix dominant = a.add(Matrix.identity(size).multiply(new Rational(10 * size)));
+            Matrix lu = scheduler.lu(new TiledMatrix(dominant, RANDOM.nextInt(5) + 1))
+                    .get().toMatrix();
+            Rational[][] l = new Rational[size][size];
+            Rational[][] u = new Rational[size][size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    l[i][j] = i > j ? lu.get(i, j) : i == j ? Rational.ONE : Rational.ZERO;
+                    u[i][j] = i <= j ? lu.get(i, j) : Rational.ZERO;
+                }
+            }
+            assertEquals(new Matrix(l).multiply(new Matrix(u)), dominant);
+        }
+    }
+}
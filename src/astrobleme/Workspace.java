@@ -0,0 +1,112 @@
+package astrobleme;
+
+/**
+ * Reusable scratch storage for the solve, permute and multiply routines, so that
+ * repeated calls on problems of the same size do not allocate temporary arrays
+ * every time. Together with the overloads that write into a caller-supplied
+ * output array (like {@link LUPDecompose#solve(Rational[], Rational[], Workspace)}),
+ * a loop of small solves only allocates the elements themselves.
+ * <p>
+ * Every thread has its own instance, available through {@link #local()}, which the
+ * routines use when no Workspace is given. A Workspace may also be created and
+ * passed explicitly, for instance to keep one per task. Either way, an instance
+ * must never be used by two threads at the same time.
+ * <p>
+ * Buffers are allocated on first use and kept for as long as the requested sizes
+ * stay the same. {@link #reserve(int)} allocates them up front, and
+ * {@link #release()} (or {@link #releaseLocal()}) lets them be collected.
+ *
+ * @author Subhomoy Haldar
+ * @version 2017.02.10
+ */
+public final class Workspace {
+    // The number of distinct vectors a routine may need at the same time
+    static final int SLOTS = 1;
+
+    private static final ThreadLocal<Workspace> LOCAL = ThreadLocal.withInitial(Workspace::new);
+
+    private final Rational[][] vectors = new Rational[SLOTS][];
+    private RationalAccumulator accumulator;
+
+    /**
+     * Creates an empty Workspace; the buffers are allocated when first needed.
+     */
+    public Workspace() {
+    }
+
+    /**
+     * Creates a Workspace with buffers for systems of the given size.
+     *
+     * @param size The expected number of unknowns.
+     */
+    public Workspace(int size) {
+        reserve(size);
+    }
+
+    /**
+     * @return The Workspace of the current thread.
+     */
+    public static Workspace local() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Releases the Workspace of the current thread. A new, empty one is created if
+     * the thread needs it again.
+     */
+    public static void releaseLocal() {
+        LOCAL.get().release();
+        LOCAL.remove();
+    }
+
+    /**
+     * A sizing hint: allocates the buffers for systems of the given size now,
+     * instead of on first use.
+     *
+     * @param size The expected number of unknowns.
+     * @throws IllegalArgumentException If the size is negative.
+     */
+    public void reserve(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must be non-negative.");
+        }
+        for (int slot = 0; slot < SLOTS; slot++) {
+            vector(slot, size);
+        }
+        accumulator();
+    }
+
+    /**
+     * Drops all the buffers, so that they can be garbage collected. The Workspace
+     * can still be used afterwards.
+     */
+    public void release() {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            vectors[slot] = null;
+        }
+        accumulator = null;
+    }
+
+    /**
+     * @param slot   The index of the buffer, less than {@link #SLOTS}.
+     * @param length The exact length required.
+     * @return A buffer of the given length, with arbitrary contents.
+     */
+    Rational[] vector(int slot, int length) {
+        Rational[] vector = vectors[slot];
+        if (vector == null || vector.length != length) {
+            vector = vectors[slot] = new Rational[length];
+        }
+        return vector;
+    }
+
+    /**
+     * @return The accumulator, reset to zero.
+     */
+    RationalAccumulator accumulator() {
+        if (accumulator == null) {
+            accumulator = new RationalAccumulator();
+        }
+        return accumulator.reset();
+    }
+}